@@ -0,0 +1,143 @@
+package com.demo.cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.demo.dto.BookView;
+import com.demo.dto.CacheStatsResponse;
+import com.demo.dto.PageResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Read-through cache in front of BookRepo: books by id, plus the first few listing pages
+ * that every client opens with. BookService evicts entries whenever a book changes.
+ * <p>
+ * Each eviction bumps a generation first. A load that started before an eviction cannot be
+ * reached by it, so what it read is not kept: a batch of books is only put while the generation
+ * is unchanged, and a page is stamped with the generation it was loaded in.
+ */
+@Component
+public class BookCache {
+
+    private final Cache<Long, BookView> books;
+    private final Cache<PageKey, CachedPage> pages;
+    private final int cachedPages;
+    private final AtomicLong bookGeneration = new AtomicLong();
+    private final AtomicLong pageGeneration = new AtomicLong();
+
+    public BookCache(
+            @Value("${library.cache.books.max-size:10000}") long maxBooks,
+            @Value("${library.cache.books.ttl:10m}") Duration bookTtl,
+            @Value("${library.cache.pages.count:5}") int cachedPages,
+            @Value("${library.cache.pages.max-size:100}") long maxPages,
+            @Value("${library.cache.pages.ttl:30s}") Duration pageTtl,
+            MeterRegistry meterRegistry) {
+        this.books = Caffeine.newBuilder()
+                .maximumSize(maxBooks)
+                .expireAfterWrite(bookTtl)
+                .recordStats()
+                .build();
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(maxPages)
+                .expireAfterWrite(pageTtl)
+                .recordStats()
+                .build();
+        this.cachedPages = cachedPages;
+        CaffeineCacheMetrics.monitor(meterRegistry, books, "books");
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "pages");
+    }
+
+    // Caffeine orders a per-key load against invalidate(), so this one cannot be overtaken
+    public BookView getBook(Long id, Function<Long, BookView> loader) {
+        return books.get(id, loader);
+    }
+
+    public Map<Long, BookView> getBooks(List<Long> ids, Function<Set<Long>, Map<Long, BookView>> loader) {
+        Map<Long, BookView> found = new HashMap<>(books.getAllPresent(ids));
+        Set<Long> missing = Set.copyOf(ids.stream().filter(id -> !found.containsKey(id)).toList());
+        if (!missing.isEmpty()) {
+            long generation = generation();
+            Map<Long, BookView> loaded = loader.apply(missing);
+            found.putAll(loaded);
+            putBooks(loaded.values(), generation);
+        }
+        return found;
+    }
+
+    public PageResponse<BookView> getPage(int page, int size, Supplier<PageResponse<BookView>> loader) {
+        if (page >= cachedPages) {
+            return loader.get();
+        }
+        long generation = pageGeneration.get();
+        PageKey key = new PageKey(page, size);
+        CachedPage cached = pages.get(key, k -> new CachedPage(pageGeneration.get(), loader.get()));
+        if (cached.generation() != pageGeneration.get()) {
+            // Was still loading when invalidateAll() ran, which skips loads in progress
+            pages.asMap().remove(key, cached);
+        }
+        // A page loaded before this request started may miss a write the caller already saw
+        return cached.generation() >= generation ? cached.page() : loader.get();
+    }
+
+    /**
+     * The generation to pass to {@link #putBooks}, taken before the books are read.
+     */
+    public long generation() {
+        return bookGeneration.get();
+    }
+
+    /**
+     * Caches books read since {@code generation}, unless a book was evicted in the meantime.
+     */
+    public void putBooks(Collection<BookView> views, long generation) {
+        for (BookView view : views) {
+            // Checked under the entry's lock, which invalidate() takes as well
+            books.asMap().compute(view.getId(), (id, cached) -> bookGeneration.get() == generation ? view : cached);
+        }
+    }
+
+    public void evictBook(Long id) {
+        bookGeneration.incrementAndGet();
+        books.invalidate(id);
+        evictPages();
+    }
+
+    public void evictBooks(Collection<Long> ids) {
+        bookGeneration.incrementAndGet();
+        books.invalidateAll(ids);
+        evictPages();
+    }
+
+    public void evictPages() {
+        pageGeneration.incrementAndGet();
+        pages.invalidateAll();
+    }
+
+    public Map<String, CacheStatsResponse> stats() {
+        Map<String, CacheStatsResponse> stats = new LinkedHashMap<>();
+        stats.put("books", CacheStatsResponse.of(books));
+        stats.put("pages", CacheStatsResponse.of(pages));
+        return stats;
+    }
+
+    private record PageKey(int page, int size) {
+    }
+
+    private record CachedPage(long generation, PageResponse<BookView> page) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.demo.controllers;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import com.demo.exceptions.BookConflictException;
+import com.demo.exceptions.BookNotFoundException;
+import com.demo.exceptions.DataErrors;
+
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    @ExceptionHandler(BookNotFoundException.class)
+    public ProblemDetail bookNotFound(BookNotFoundException e) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.NOT_FOUND, e.getMessage());
+    }
+
+    @ExceptionHandler(BookConflictException.class)
+    public ProblemDetail bookConflict(BookConflictException e) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, e.getMessage());
+    }
+
+    // A concurrent transaction updated the same book first
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ProblemDetail optimisticLockingFailure(ObjectOptimisticLockingFailureException e) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, "Book was changed by another request");
+    }
+
+    @ExceptionHandler({DataIntegrityViolationException.class, ConstraintViolationException.class})
+    public ProblemDetail dataIntegrityViolation(RuntimeException e) {
+        if (DataErrors.isDuplicateIsbn(e)) {
+            return ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, DataErrors.DUPLICATE_ISBN);
+        }
+        String invalid = DataErrors.invalidValue(e);
+        if (invalid != null) {
+            return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, invalid);
+        }
+        return ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, "The request conflicts with the stored data");
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ProblemDetail badRequest(IllegalArgumentException e) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+}
@@ -0,0 +1,65 @@
+package com.demo.controllers;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+import com.demo.dto.BookView;
+import com.demo.dto.PageResponse;
+
+/**
+ * Entity tags for book representations. A book's tag is its id and version; a page's tag is a digest of
+ * the page metadata and the id and version of every book on it, so it changes whenever any of them does,
+ * and a list's tag the same digest without the metadata. The tags are exact, but marked weak: the same tag
+ * covers the identity and the gzip-encoded body, and Tomcat does not compress responses that carry a strong
+ * tag. If-None-Match compares weakly either way.
+ */
+final class BookETags {
+
+    private BookETags() {
+    }
+
+    static String of(BookView book) {
+        return "W/\"" + book.getId() + "-" + book.getVersion() + "\"";
+    }
+
+    static String of(PageResponse<BookView> page) {
+        int books = page.getContent() == null ? 0 : page.getContent().size();
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES * (5 + 2 * books));
+        buffer.putLong(page.getPage())
+                .putLong(page.getSize())
+                .putLong(page.getTotalElements())
+                .putLong(page.getTotalPages())
+                .putLong(page.getNextCursor() == null ? -1 : page.getNextCursor());
+        for (int i = 0; i < books; i++) {
+            BookView book = page.getContent().get(i);
+            buffer.putLong(book.getId()).putLong(book.getVersion() == null ? -1 : book.getVersion());
+        }
+
+        return digest(buffer);
+    }
+
+    static String of(List<BookView> books) {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES * 2 * books.size());
+        for (BookView book : books) {
+            buffer.putLong(book.getId()).putLong(book.getVersion() == null ? -1 : book.getVersion());
+        }
+        return digest(buffer);
+    }
+
+    private static String digest(ByteBuffer buffer) {
+        byte[] digest = sha256().digest(buffer.array());
+        // 128 bits are plenty to tell versions of the same page apart
+        return "W/\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
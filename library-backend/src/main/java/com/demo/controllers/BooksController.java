@@ -1,41 +1,184 @@
 package com.demo.controllers;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.demo.dto.BookBatchResponse;
+import com.demo.dto.BookFacetsResponse;
+import com.demo.dto.BookFilter;
+import com.demo.dto.BookOperation;
+import com.demo.dto.BookPatch;
+import com.demo.dto.BookSuggestion;
+import com.demo.dto.BookSyncResponse;
+import com.demo.dto.BookVersion;
+import com.demo.dto.BookView;
+import com.demo.dto.BulkDeleteRequest;
+import com.demo.dto.BulkDeleteResponse;
+import com.demo.dto.BulkImportResponse;
 import com.demo.dto.PageResponse;
 import com.demo.model.Book;
+import com.demo.service.BookChangeFeed;
+import com.demo.service.BookExportService;
+import com.demo.service.BookImportService;
 import com.demo.service.BookService;
+import com.demo.service.BookSyncService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 
 @RestController
 @RequestMapping("/api/books")
 public class BooksController {
 
+    // Binary JSON; also negotiated for every JSON response through the Accept header
+    private static final String SMILE_VALUE = "application/x-jackson-smile";
+    private static final MediaType SMILE = MediaType.parseMediaType(SMILE_VALUE);
+
     private final BookService bookService;
+    private final BookImportService bookImportService;
+    private final BookExportService bookExportService;
+    private final BookChangeFeed bookChangeFeed;
+    private final BookSyncService bookSyncService;
+    private final int maxIds;
+    private final int maxBatchOperations;
 
-    public BooksController(BookService bookService) {
+    public BooksController(
+            BookService bookService,
+            BookImportService bookImportService,
+            BookExportService bookExportService,
+            BookChangeFeed bookChangeFeed,
+            BookSyncService bookSyncService,
+            @Value("${library.batch.max-ids:1000}") int maxIds,
+            @Value("${library.batch.max-operations:1000}") int maxBatchOperations) {
         this.bookService = bookService;
+        this.bookImportService = bookImportService;
+        this.bookExportService = bookExportService;
+        this.bookChangeFeed = bookChangeFeed;
+        this.bookSyncService = bookSyncService;
+        this.maxIds = maxIds;
+        this.maxBatchOperations = maxBatchOperations;
     }
 
+    // Reads that carry a matching If-None-Match are answered 304 without serializing the body
+
     @GetMapping
-    public PageResponse<Book> getAllBooks(
+    public PageResponse<BookView> getAllBooks(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        return bookService.getAllBooksPaginated(page, size);
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Long after,
+            @Valid BookFilter filter,
+            WebRequest request) {
+        PageResponse<BookView> response;
+        if (!filter.isUnfiltered()) {
+            response = bookService.findBooks(filter, page, size, after);
+        } else if (after != null) {
+            response = bookService.getBooksAfter(after, size);
+        } else {
+            response = bookService.getAllBooksPaginated(page, size);
+        }
+        return request.checkNotModified(BookETags.of(response)) ? null : response;
+    }
+
+    /**
+     * The books with the given ids ({@code ?ids=1,2,3}), in that order; unknown ids are left out.
+     */
+    @GetMapping(params = "ids")
+    public List<BookView> getBooks(@RequestParam List<Long> ids, WebRequest request) {
+        if (ids.size() > maxIds) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + maxIds + " ids per request");
+        }
+        List<BookView> books = bookService.getBooks(ids);
+        return request.checkNotModified(BookETags.of(books)) ? null : books;
+    }
+
+    @GetMapping("/facets")
+    public BookFacetsResponse getFacets(@RequestParam(defaultValue = "20") int authors) {
+        return bookService.getFacets(Math.max(0, Math.min(authors, 1000)));
     }
 
     @GetMapping("/search")
-    public PageResponse<Book> searchBooks(
+    public PageResponse<BookView> searchBooks(
             @RequestParam String query,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        return bookService.searchBooks(query, page, size);
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Long after,
+            WebRequest request) {
+        PageResponse<BookView> response = after != null
+                ? bookService.searchBooksAfter(query, after, size)
+                : bookService.searchBooks(query, page, size);
+        return request.checkNotModified(BookETags.of(response)) ? null : response;
+    }
+
+    @GetMapping("/suggest")
+    public List<BookSuggestion> suggestBooks(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "10") int limit) {
+        return bookService.suggestBooks(query, Math.max(0, Math.min(limit, 50)));
+    }
+
+    // Clients send back the version and epoch of their last sync; since=0 fetches the whole catalog
+    @GetMapping("/sync")
+    public BookSyncResponse sync(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(required = false) String epoch,
+            @RequestParam(defaultValue = "1000") int limit) {
+        return bookSyncService.sync(since, epoch, Math.min(limit, 10_000));
+    }
+
+    // Server-sent events; clients resume after a disconnect by sending back the last event id they saw
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return bookChangeFeed.subscribe(lastEventId);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportBooks(@RequestParam(defaultValue = "ndjson") String format) {
+        StreamingResponseBody body;
+        MediaType mediaType;
+        switch (format) {
+            case "ndjson" -> {
+                body = bookExportService::exportNdjson;
+                mediaType = MediaType.APPLICATION_NDJSON;
+            }
+            case "smile" -> {
+                body = bookExportService::exportSmile;
+                mediaType = SMILE;
+            }
+            case "csv" -> {
+                body = bookExportService::exportCsv;
+                mediaType = new MediaType("text", "csv", StandardCharsets.UTF_8);
+            }
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported export format: " + format);
+        }
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("books." + format).build().toString())
+                .body(body);
     }
 
     @GetMapping("/{id}")
-    public Book getBook(@PathVariable Long id) {
-        return bookService.getBook(id);
+    public BookView getBook(@PathVariable Long id, WebRequest request) {
+        BookView book = bookService.getBook(id);
+        return request.checkNotModified(BookETags.of(book)) ? null : book;
+    }
+
+    @GetMapping("/isbn/{isbn}")
+    public BookView getBookByIsbn(@PathVariable String isbn, WebRequest request) {
+        BookView book = bookService.getBookByIsbn(isbn);
+        return request.checkNotModified(BookETags.of(book)) ? null : book;
     }
 
     @PostMapping
@@ -43,15 +186,95 @@ public class BooksController {
         return ResponseEntity.status(HttpStatus.CREATED).body(bookService.addBook(book));
     }
 
+    @PostMapping(value = "/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE, SMILE_VALUE})
+    public BulkImportResponse importBooks(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws IOException {
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        if (MediaType.APPLICATION_NDJSON.isCompatibleWith(mediaType)) {
+            return bookImportService.importNdjson(body);
+        }
+        if (SMILE.isCompatibleWith(mediaType)) {
+            return bookImportService.importSmile(body);
+        }
+        return bookImportService.importJsonArray(body);
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<BookBatchResponse> applyBatch(@RequestBody List<BookOperation> operations) {
+        if (operations.size() > maxBatchOperations) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxBatchOperations + " operations per batch");
+        }
+        operations.forEach(BooksController::checkOperation);
+        BookBatchResponse response = bookService.applyBatch(operations);
+        if (response.isApplied()) {
+            return ResponseEntity.ok(response);
+        }
+        // Answered with the status of the operation that failed
+        int status = response.getResults().stream()
+                .mapToInt(BookBatchResponse.Result::getStatus)
+                .filter(code -> code != HttpStatus.FAILED_DEPENDENCY.value())
+                .findFirst()
+                .orElse(HttpStatus.CONFLICT.value());
+        return ResponseEntity.status(status).body(response);
+    }
+
+    private static void checkOperation(BookOperation operation) {
+        boolean valid = switch (String.valueOf(operation.getOp())) {
+            case BookOperation.CREATE -> operation.getBook() != null;
+            case BookOperation.UPDATE -> operation.getId() != null && operation.getBook() != null;
+            case BookOperation.DELETE -> operation.getId() != null;
+            default -> false;
+        };
+        if (!valid) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Each operation needs an op of create (with a book), update (with an id and a book)"
+                            + " or delete (with an id)");
+        }
+    }
+
     @PutMapping("/{id}")
     public Book updateBook(@PathVariable Long id, @RequestBody Book book) {
         return bookService.updateBook(id, book);
     }
 
+    @PatchMapping("/{id}")
+    public BookVersion patchBook(@PathVariable Long id, @RequestBody BookPatch patch) {
+        patch.setId(id);
+        checkPatch(patch);
+        return bookService.patchBooks(List.of(patch)).get(0);
+    }
+
+    @PatchMapping
+    public List<BookVersion> patchBooks(@RequestBody List<BookPatch> patches) {
+        patches.forEach(BooksController::checkPatch);
+        return bookService.patchBooks(patches);
+    }
+
+    private static void checkPatch(BookPatch patch) {
+        if (patch.getId() == null || patch.getVersion() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A patch needs the id and the version of the book it changes");
+        }
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteBook(@PathVariable Long id) {
         bookService.deleteBook(id);
         return ResponseEntity.noContent().build();
     }
+
+    @DeleteMapping
+    public BulkDeleteResponse deleteBooks(@RequestBody BulkDeleteRequest request) {
+        if ((request.getIds() == null) == (request.getQuery() == null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Give either ids or a query");
+        }
+        if (request.getIds() != null) {
+            return bookService.deleteBooks(request.getIds());
+        }
+        return bookService.deleteMatching(request.getQuery());
+    }
 }
 
@@ -0,0 +1,25 @@
+package com.demo.controllers;
+
+import java.util.Map;
+
+import com.demo.cache.BookCache;
+import com.demo.dto.CacheStatsResponse;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/cache")
+public class CacheController {
+
+    private final BookCache bookCache;
+
+    public CacheController(BookCache bookCache) {
+        this.bookCache = bookCache;
+    }
+
+    @GetMapping("/stats")
+    public Map<String, CacheStatsResponse> getStats() {
+        return bookCache.stats();
+    }
+}
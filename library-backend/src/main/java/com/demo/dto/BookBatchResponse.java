@@ -0,0 +1,111 @@
+package com.demo.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of a batch, with one result per operation in request order. A batch is applied whole or not
+ * at all: if an operation fails, {@code applied} is false, that operation's result carries the error, and
+ * the operations after it were not attempted.
+ */
+public class BookBatchResponse {
+
+    private boolean applied;
+    private List<Result> results = new ArrayList<>();
+
+    public BookBatchResponse() {}
+
+    public BookBatchResponse(boolean applied, List<Result> results) {
+        this.applied = applied;
+        this.results = results;
+    }
+
+    public boolean isApplied() {
+        return applied;
+    }
+
+    public void setApplied(boolean applied) {
+        this.applied = applied;
+    }
+
+    public List<Result> getResults() {
+        return results;
+    }
+
+    public void setResults(List<Result> results) {
+        this.results = results;
+    }
+
+    /**
+     * The HTTP status the operation would have had on its own endpoint, e.g. 201 for a create or 404 for a
+     * missing book. Operations rolled back with the rest of the batch are 424 (Failed Dependency).
+     */
+    public static class Result {
+
+        private int index;
+        private String op;
+        private int status;
+        private Long id;
+        private Long version;
+        private String error;
+
+        public Result() {}
+
+        public Result(int index, String op, int status, Long id, Long version, String error) {
+            this.index = index;
+            this.op = op;
+            this.status = status;
+            this.id = id;
+            this.version = version;
+            this.error = error;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public void setIndex(int index) {
+            this.index = index;
+        }
+
+        public String getOp() {
+            return op;
+        }
+
+        public void setOp(String op) {
+            this.op = op;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public void setStatus(int status) {
+            this.status = status;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public Long getVersion() {
+            return version;
+        }
+
+        public void setVersion(Long version) {
+            this.version = version;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public void setError(String error) {
+            this.error = error;
+        }
+    }
+}
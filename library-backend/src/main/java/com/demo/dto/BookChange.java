@@ -0,0 +1,64 @@
+package com.demo.dto;
+
+/**
+ * One event of the change feed at {@code /api/books/changes}. {@code book} holds the book as it is after
+ * an add or update, and is null for a delete. {@code changeVersion} is the change version of the book's
+ * row, or of its tombstone: a sync that has reached it already reflects the change.
+ */
+public class BookChange {
+
+    public static final String ADDED = "added";
+    public static final String UPDATED = "updated";
+    public static final String DELETED = "deleted";
+
+    private long sequence;
+    private String type;
+    private Long id;
+    private long changeVersion;
+    private BookView book;
+
+    public BookChange() {}
+
+    public BookChange(String type, Long id, long changeVersion, BookView book) {
+        this.type = type;
+        this.id = id;
+        this.changeVersion = changeVersion;
+        this.book = book;
+    }
+
+    public static BookChange added(BookView book, long changeVersion) {
+        return new BookChange(ADDED, book.getId(), changeVersion, book);
+    }
+
+    public static BookChange updated(BookView book, long changeVersion) {
+        return new BookChange(UPDATED, book.getId(), changeVersion, book);
+    }
+
+    public static BookChange deleted(Long id, long changeVersion) {
+        return new BookChange(DELETED, id, changeVersion, null);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public long getChangeVersion() {
+        return changeVersion;
+    }
+
+    public BookView getBook() {
+        return book;
+    }
+}
@@ -0,0 +1,66 @@
+package com.demo.dto;
+
+import java.util.List;
+
+public class BookFacetsResponse {
+
+    private List<AuthorCount> authors;
+    private List<DecadeCount> decades;
+
+    public BookFacetsResponse() {}
+
+    public BookFacetsResponse(List<AuthorCount> authors, List<DecadeCount> decades) {
+        this.authors = authors;
+        this.decades = decades;
+    }
+
+    public List<AuthorCount> getAuthors() {
+        return authors;
+    }
+
+    public List<DecadeCount> getDecades() {
+        return decades;
+    }
+
+    public static class AuthorCount {
+
+        private String author;
+        private long books;
+
+        public AuthorCount() {}
+
+        public AuthorCount(String author, long books) {
+            this.author = author;
+            this.books = books;
+        }
+
+        public String getAuthor() {
+            return author;
+        }
+
+        public long getBooks() {
+            return books;
+        }
+    }
+
+    public static class DecadeCount {
+
+        private int decade;
+        private long books;
+
+        public DecadeCount() {}
+
+        public DecadeCount(int decade, long books) {
+            this.decade = decade;
+            this.books = books;
+        }
+
+        public int getDecade() {
+            return decade;
+        }
+
+        public long getBooks() {
+            return books;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.demo.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+
+/**
+ * Filters and sort order of a book listing, bound from the query parameters of {@code GET /api/books}.
+ * {@code sort} is {@code id}, {@code title}, {@code author} or {@code publishedDate}, optionally followed
+ * by {@code ,desc}. Years are limited to four digits, the range of an ISO date.
+ */
+public class BookFilter {
+
+    private String author;
+    @Min(0)
+    @Max(9999)
+    private Integer yearFrom;
+    @Min(0)
+    @Max(9999)
+    private Integer yearTo;
+    private String isbnPrefix;
+    private String sort;
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    public Integer getYearFrom() {
+        return yearFrom;
+    }
+
+    public void setYearFrom(Integer yearFrom) {
+        this.yearFrom = yearFrom;
+    }
+
+    public Integer getYearTo() {
+        return yearTo;
+    }
+
+    public void setYearTo(Integer yearTo) {
+        this.yearTo = yearTo;
+    }
+
+    public String getIsbnPrefix() {
+        return isbnPrefix;
+    }
+
+    public void setIsbnPrefix(String isbnPrefix) {
+        this.isbnPrefix = isbnPrefix;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public void setSort(String sort) {
+        this.sort = sort;
+    }
+
+    public boolean hasConditions() {
+        return author != null || yearFrom != null || yearTo != null || (isbnPrefix != null && !isbnPrefix.isBlank());
+    }
+
+    // The plain listing: every book in id order, served from the page cache
+    public boolean isUnfiltered() {
+        return !hasConditions() && (sort == null || sort.isBlank() || sort.equals("id"));
+    }
+}
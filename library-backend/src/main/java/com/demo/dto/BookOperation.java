@@ -0,0 +1,43 @@
+package com.demo.dto;
+
+import com.demo.model.Book;
+
+/**
+ * One operation of a {@code POST /api/books/batch}: {@code create} a book, {@code update} (replace) the book
+ * with {@code id}, or {@code delete} it. An update whose book carries a version is rejected unless it is
+ * still the current one, as with {@code PUT}.
+ */
+public class BookOperation {
+
+    public static final String CREATE = "create";
+    public static final String UPDATE = "update";
+    public static final String DELETE = "delete";
+
+    private String op;
+    private Long id;
+    private Book book;
+
+    public String getOp() {
+        return op;
+    }
+
+    public void setOp(String op) {
+        this.op = op;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+
+    public void setBook(Book book) {
+        this.book = book;
+    }
+}
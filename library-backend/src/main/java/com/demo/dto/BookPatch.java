@@ -0,0 +1,95 @@
+package com.demo.dto;
+
+import java.time.LocalDate;
+
+import com.demo.model.Book;
+
+/**
+ * Partial update of a book: only the properties present in the request body are changed,
+ * and an explicit {@code null} clears a property. {@code version} is the version of the book
+ * the client last read; the update is rejected if the book has changed since.
+ */
+public class BookPatch {
+
+    private Long id;
+    private Long version;
+
+    private String title;
+    private String author;
+    private String isbn;
+    private LocalDate publishedDate;
+
+    // Setters record which properties were sent
+    private boolean hasTitle;
+    private boolean hasAuthor;
+    private boolean hasIsbn;
+    private boolean hasPublishedDate;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+        this.hasTitle = true;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+        this.hasAuthor = true;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public void setIsbn(String isbn) {
+        this.isbn = Book.normalizeIsbn(isbn);
+        this.hasIsbn = true;
+    }
+
+    public LocalDate getPublishedDate() {
+        return publishedDate;
+    }
+
+    public void setPublishedDate(LocalDate publishedDate) {
+        this.publishedDate = publishedDate;
+        this.hasPublishedDate = true;
+    }
+
+    public boolean hasTitle() {
+        return hasTitle;
+    }
+
+    public boolean hasAuthor() {
+        return hasAuthor;
+    }
+
+    public boolean hasIsbn() {
+        return hasIsbn;
+    }
+
+    public boolean hasPublishedDate() {
+        return hasPublishedDate;
+    }
+}
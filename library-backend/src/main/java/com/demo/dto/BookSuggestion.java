@@ -0,0 +1,30 @@
+package com.demo.dto;
+
+public class BookSuggestion {
+
+    private Long id;
+    private String title;
+
+    public BookSuggestion() {}
+
+    public BookSuggestion(Long id, String title) {
+        this.id = id;
+        this.title = title;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+}
@@ -0,0 +1,78 @@
+package com.demo.dto;
+
+import java.util.List;
+
+/**
+ * The books added or changed, and the ids of the books deleted, after a client's last change version.
+ * {@code version} is the one to send as {@code since} next time; with {@code reset} the client's copy is
+ * out of date beyond repair and must be replaced by the books that follow.
+ */
+public class BookSyncResponse {
+
+    private String epoch;
+    private long version;
+    private boolean reset;
+    private boolean hasMore;
+    private List<BookView> books;
+    private List<Long> deleted;
+
+    public BookSyncResponse() {}
+
+    public BookSyncResponse(String epoch, long version, boolean reset, boolean hasMore,
+                            List<BookView> books, List<Long> deleted) {
+        this.epoch = epoch;
+        this.version = version;
+        this.reset = reset;
+        this.hasMore = hasMore;
+        this.books = books;
+        this.deleted = deleted;
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public void setEpoch(String epoch) {
+        this.epoch = epoch;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public boolean isReset() {
+        return reset;
+    }
+
+    public void setReset(boolean reset) {
+        this.reset = reset;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public List<BookView> getBooks() {
+        return books;
+    }
+
+    public void setBooks(List<BookView> books) {
+        this.books = books;
+    }
+
+    public List<Long> getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(List<Long> deleted) {
+        this.deleted = deleted;
+    }
+}
@@ -0,0 +1,30 @@
+package com.demo.dto;
+
+public class BookVersion {
+
+    private Long id;
+    private Long version;
+
+    public BookVersion() {}
+
+    public BookVersion(Long id, Long version) {
+        this.id = id;
+        this.version = version;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
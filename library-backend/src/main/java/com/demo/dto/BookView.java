@@ -0,0 +1,84 @@
+package com.demo.dto;
+
+import java.time.LocalDate;
+
+import com.demo.model.Book;
+
+/**
+ * Read-only representation of a book for list, search and lookup responses. It is built directly
+ * by JPQL constructor expressions, so the rows never become managed entities: no persistence
+ * context entry, no snapshot and no dirty check. Serializes exactly like {@link Book}.
+ */
+public class BookView {
+
+    private Long id;
+    private String title;
+    private String author;
+    private String isbn;
+    private LocalDate publishedDate;
+    private Long version;
+
+    public BookView() {}
+
+    public BookView(Long id, String title, String author, String isbn, LocalDate publishedDate, Long version) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.isbn = isbn;
+        this.publishedDate = publishedDate;
+        this.version = version;
+    }
+
+    public static BookView of(Book book) {
+        return new BookView(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn(),
+                book.getPublishedDate(), book.getVersion());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public void setIsbn(String isbn) {
+        this.isbn = isbn;
+    }
+
+    public LocalDate getPublishedDate() {
+        return publishedDate;
+    }
+
+    public void setPublishedDate(LocalDate publishedDate) {
+        this.publishedDate = publishedDate;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,28 @@
+package com.demo.dto;
+
+import java.util.List;
+
+/**
+ * Selects the books to delete: either explicit ids, or every book matching a search query.
+ */
+public class BulkDeleteRequest {
+
+    private List<Long> ids;
+    private String query;
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+}
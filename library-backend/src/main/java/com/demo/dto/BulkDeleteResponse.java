@@ -0,0 +1,60 @@
+package com.demo.dto;
+
+public class BulkDeleteResponse {
+
+    private int requested;
+    private int deleted;
+    private boolean soft;
+    private int chunks;
+    private long elapsedMillis;
+
+    public BulkDeleteResponse() {}
+
+    public BulkDeleteResponse(int requested, int deleted, boolean soft, int chunks, long elapsedMillis) {
+        this.requested = requested;
+        this.deleted = deleted;
+        this.soft = soft;
+        this.chunks = chunks;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getRequested() {
+        return requested;
+    }
+
+    public void setRequested(int requested) {
+        this.requested = requested;
+    }
+
+    public int getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(int deleted) {
+        this.deleted = deleted;
+    }
+
+    public boolean isSoft() {
+        return soft;
+    }
+
+    public void setSoft(boolean soft) {
+        this.soft = soft;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(int chunks) {
+        this.chunks = chunks;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+}
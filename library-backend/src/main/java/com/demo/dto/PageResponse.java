@@ -9,6 +9,7 @@ public class PageResponse<T> {
     private int size;
     private long totalElements;
     private int totalPages;
+    private Long nextCursor;
 
     public PageResponse() {}
 
@@ -20,6 +21,11 @@ public class PageResponse<T> {
         this.totalPages = totalPages;
     }
 
+    public PageResponse(List<T> content, int size, long totalElements, int totalPages, Long nextCursor) {
+        this(content, 0, size, totalElements, totalPages);
+        this.nextCursor = nextCursor;
+    }
+
     public List<T> getContent() {
         return content;
     }
@@ -59,4 +65,12 @@ public class PageResponse<T> {
     public void setTotalPages(int totalPages) {
         this.totalPages = totalPages;
     }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
 }
@@ -0,0 +1,8 @@
+package com.demo.exceptions;
+
+public class BookConflictException extends RuntimeException {
+    public BookConflictException(String message) {
+        super(message);
+    }
+
+}
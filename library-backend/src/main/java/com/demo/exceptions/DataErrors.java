@@ -0,0 +1,55 @@
+package com.demo.exceptions;
+
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Tells apart the database errors a request can cause, by SQL state and constraint name, and words them for
+ * the client: the driver's own messages name tables, constraints and SQL, which are not the client's concern.
+ */
+public final class DataErrors {
+
+    public static final String DUPLICATE_ISBN = "A book with this ISBN already exists";
+
+    private static final String ISBN_CONSTRAINT = "uk_book_isbn";
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final String NOT_NULL_VIOLATION = "23502";
+    private static final String VALUE_TOO_LONG = "22001";
+
+    private DataErrors() {
+    }
+
+    /**
+     * Whether {@code e} was caused by a second book with the same ISBN.
+     */
+    public static boolean isDuplicateIsbn(Throwable e) {
+        SQLException sql = sqlException(e);
+        return sql != null && UNIQUE_VIOLATION.equals(sql.getSQLState())
+                && sql.getMessage() != null && sql.getMessage().toLowerCase(Locale.ROOT).contains(ISBN_CONSTRAINT);
+    }
+
+    /**
+     * A message for a row the client sent that the database rejected, or null if the cause is not one a
+     * valid book can be blamed for.
+     */
+    public static String invalidValue(Throwable e) {
+        SQLException sql = sqlException(e);
+        if (sql == null) {
+            return null;
+        }
+        return switch (String.valueOf(sql.getSQLState())) {
+            case NOT_NULL_VIOLATION -> "A required field is missing";
+            case VALUE_TOO_LONG -> "A field is longer than 255 characters";
+            default -> null;
+        };
+    }
+
+    private static SQLException sqlException(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql) {
+                return sql;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,196 @@
+package com.demo.filters;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Caps the number of API requests running at once, by default to the size of the connection pool.
+ * With virtual threads there is no worker pool to bound concurrency any more, so without this
+ * every burst would end up queueing inside Hikari instead of being rejected early.
+ * <p>
+ * Requests are admitted by priority (see {@link RequestCost}). While the recent wait for a permit is longer
+ * than {@code library.concurrency.limit.shed.low}, searches, exports and bulk imports are rejected at once,
+ * and beyond {@code shed.normal} listings too, leaving the permits to single-book requests. Those are only
+ * rejected once they have waited {@code queue-timeout}. Either way the answer is 503 with Retry-After.
+ * A request that continues asynchronously, like the streamed export, keeps its permit until it completes.
+ */
+@Component
+@Order(2)
+@ConditionalOnProperty(name = "library.concurrency.limit.enabled", havingValue = "true")
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    // Waits measured longer ago than this no longer describe the queue
+    private static final long STALE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final String CHANGE_FEED = "/api/books/changes";
+
+    private final Semaphore permits;
+    private final long queueTimeoutMillis;
+    private final Map<RequestCost.Priority, Long> shedNanos = new EnumMap<>(RequestCost.Priority.class);
+    // Moving average of the wait for a permit, and when it was last updated
+    private final AtomicLong queueDelay = new AtomicLong();
+    private final AtomicLong sampledAt = new AtomicLong(System.nanoTime());
+    private final Map<RequestCost.Priority, Counter> timedOut = new EnumMap<>(RequestCost.Priority.class);
+    private final Map<RequestCost.Priority, Counter> shed = new EnumMap<>(RequestCost.Priority.class);
+
+    public ConcurrencyLimitFilter(
+            @Value("${library.concurrency.limit.max-concurrent:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrent,
+            @Value("${library.concurrency.limit.queue-timeout:2s}") Duration queueTimeout,
+            @Value("${library.concurrency.limit.shed.low:100ms}") Duration shedLow,
+            @Value("${library.concurrency.limit.shed.normal:500ms}") Duration shedNormal,
+            MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.queueTimeoutMillis = queueTimeout.toMillis();
+        this.shedNanos.put(RequestCost.Priority.LOW, shedLow.toNanos());
+        this.shedNanos.put(RequestCost.Priority.NORMAL, shedNormal.toNanos());
+        this.shedNanos.put(RequestCost.Priority.HIGH, Long.MAX_VALUE);
+        for (RequestCost.Priority priority : RequestCost.Priority.values()) {
+            String tag = priority.name().toLowerCase();
+            timedOut.put(priority, Counter.builder("library.concurrency.rejected")
+                    .description("API requests rejected because no permit became free in time")
+                    .tag("priority", tag)
+                    .register(meterRegistry));
+            shed.put(priority, Counter.builder("library.concurrency.shed")
+                    .description("API requests rejected without queueing because the queue was too slow")
+                    .tag("priority", tag)
+                    .register(meterRegistry));
+        }
+        Gauge.builder("library.concurrency.available", permits, Semaphore::availablePermits)
+                .description("Free request permits")
+                .register(meterRegistry);
+        Gauge.builder("library.concurrency.queued", permits, Semaphore::getQueueLength)
+                .description("Requests waiting for a permit")
+                .register(meterRegistry);
+        Gauge.builder("library.concurrency.queue.delay", this, filter -> filter.queueDelay() / 1e6)
+                .description("Recent average wait for a permit")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    // The change feed holds neither a thread nor a connection while it waits, but stays open for half an hour
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/") || request.getRequestURI().equals(CHANGE_FEED);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestCost.Priority priority = RequestCost.of(request).priority();
+        long delay = queueDelay();
+        if (delay > shedNanos.get(priority)) {
+            shed.get(priority).increment();
+            reject(response, TimeUnit.NANOSECONDS.toSeconds(delay) + 1);
+            return;
+        }
+
+        boolean acquired;
+        long start = System.nanoTime();
+        try {
+            // Zero rather than no timeout: a free permit is taken at once, but never ahead of queued requests
+            acquired = permits.tryAcquire(0, TimeUnit.MILLISECONDS);
+            if (acquired) {
+                if (queueDelay.get() != 0) {
+                    recordWait(0);
+                }
+            } else {
+                acquired = permits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+                recordWait(System.nanoTime() - start);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            timedOut.get(priority).increment();
+            reject(response, 1);
+            return;
+        }
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            async = request.isAsyncStarted();
+        } finally {
+            if (async) {
+                // A streamed response, e.g. the export, keeps its connection until the stream ends
+                request.getAsyncContext().addListener(new ReleaseOnCompletion());
+            } else {
+                permits.release();
+            }
+        }
+    }
+
+    // Releases the permit once however the async request ends: an error or timeout is followed by completion
+    private class ReleaseOnCompletion implements AsyncListener {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+
+    private static void reject(HttpServletResponse response, long retryAfterSeconds) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Server is busy, try again later");
+    }
+
+    // Weighs each wait by a quarter, or starts over after a gap; a compare-and-set loop rather than a lock
+    private void recordWait(long nanos) {
+        long now = System.nanoTime();
+        boolean stale = now - sampledAt.get() > STALE_NANOS;
+        queueDelay.accumulateAndGet(nanos, (average, wait) -> stale ? wait : average + (wait - average) / 4);
+        sampledAt.set(now);
+    }
+
+    // While every request is being shed nothing is measured: after a while, let one through to find out
+    private long queueDelay() {
+        return System.nanoTime() - sampledAt.get() > STALE_NANOS ? 0 : queueDelay.get();
+    }
+}
@@ -0,0 +1,131 @@
+package com.demo.filters;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Per-client token buckets: each client's bucket refills at {@code library.rate-limit.rate} tokens a second
+ * up to {@code library.rate-limit.burst}, and every API request takes its {@link RequestCost}. A request the
+ * bucket cannot pay for is answered 429, with the seconds until it could in Retry-After. Clients are told
+ * apart by remote address, or by {@code library.rate-limit.client-header} behind a proxy that sets one.
+ * <p>
+ * A bucket is a single AtomicLong, the time at which it will be full again (the generic cell rate
+ * algorithm), taken from by compare-and-set: requests never wait on a lock, not even those of one client.
+ * Runs before {@link ConcurrencyLimitFilter}, so rejected requests never hold a permit.
+ */
+@Component
+@Order(1)
+@ConditionalOnProperty(name = "library.rate-limit.enabled", havingValue = "true")
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final long nanosPerToken;
+    private final int burst;
+    private final String clientHeader;
+    private final Cache<String, AtomicLong> buckets;
+    private final Map<RequestCost.Priority, Counter> rejected = new EnumMap<>(RequestCost.Priority.class);
+
+    public RateLimitFilter(
+            @Value("${library.rate-limit.rate:100}") double rate,
+            @Value("${library.rate-limit.burst:200}") int burst,
+            @Value("${library.rate-limit.client-header:}") String clientHeader,
+            @Value("${library.rate-limit.max-clients:100000}") long maxClients,
+            MeterRegistry meterRegistry) {
+        this.nanosPerToken = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        this.burst = burst;
+        this.clientHeader = clientHeader.isBlank() ? null : clientHeader.strip();
+        // A bucket left alone this long is full again, the same as a new one
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(Duration.ofNanos(nanosPerToken * burst).plusSeconds(1))
+                .build();
+        for (RequestCost.Priority priority : RequestCost.Priority.values()) {
+            rejected.put(priority, Counter.builder("library.rate-limit.rejected")
+                    .description("API requests rejected because their client was over its rate limit")
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        Gauge.builder("library.rate-limit.clients", buckets, Cache::estimatedSize)
+                .description("Clients with a rate limit bucket")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestCost cost = RequestCost.of(request);
+        long wait = take(client(request), cost.tokens());
+        if (wait > 0) {
+            rejected.get(cost.priority()).increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(seconds(wait)));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Rate limit exceeded, try again later");
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    private String client(HttpServletRequest request) {
+        if (clientHeader != null) {
+            String value = request.getHeader(clientHeader);
+            if (value != null && !value.isBlank()) {
+                // X-Forwarded-For lists the client first
+                return value.split(",")[0].strip();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    /**
+     * Takes the tokens from the client's bucket. Returns 0 if it held enough, or else the nanoseconds until
+     * it will, leaving it untouched. A request costing more than the burst is charged the burst.
+     */
+    private long take(String client, int tokens) {
+        AtomicLong full = buckets.get(client, key -> new AtomicLong(System.nanoTime()));
+        long cost = Math.min(tokens, burst) * nanosPerToken;
+        long capacity = burst * nanosPerToken;
+        while (true) {
+            long now = System.nanoTime();
+            long current = full.get();
+            // nanoTime may be negative and wrap: compare by difference
+            long next = (current - now > 0 ? current : now) + cost;
+            if (next - now > capacity) {
+                return next - now - capacity;
+            }
+            if (full.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    private static long seconds(long nanos) {
+        return Math.max(1, (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+}
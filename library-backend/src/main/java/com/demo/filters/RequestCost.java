@@ -0,0 +1,75 @@
+package com.demo.filters;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * What an API request costs, estimated from its method, path and parameters before it runs: the tokens it
+ * takes from its client's rate limit, and the priority it is admitted with under load. A request costs one
+ * token, plus one per 100 rows it can return; searches, multi-book writes, bulk imports and exports cost more.
+ */
+record RequestCost(int tokens, Priority priority) {
+
+    enum Priority {
+        // Single books, read or written: cheap, and what an interactive client waits on. Never shed.
+        HIGH,
+        // Listings, suggestions, sync and multi-book writes
+        NORMAL,
+        // Search, export and bulk import: the first to be shed
+        LOW
+    }
+
+    private static final String BOOKS = "/api/books";
+    private static final int SEARCH = 5;
+    private static final int MULTI_WRITE = 10;
+    private static final int BULK = 50;
+
+    static RequestCost of(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        if (!path.startsWith(BOOKS)) {
+            return new RequestCost(1, Priority.HIGH);
+        }
+        String endpoint = path.substring(BOOKS.length());
+        if (!"GET".equals(request.getMethod())) {
+            return switch (endpoint) {
+                case "/bulk" -> new RequestCost(BULK, Priority.LOW);
+                case "/batch" -> new RequestCost(MULTI_WRITE, Priority.NORMAL);
+                // POST adds one book; PATCH and DELETE change many
+                case "", "/" -> "POST".equals(request.getMethod())
+                        ? new RequestCost(1, Priority.HIGH)
+                        : new RequestCost(MULTI_WRITE, Priority.NORMAL);
+                default -> new RequestCost(1, Priority.HIGH);
+            };
+        }
+        return switch (endpoint) {
+            case "", "/" -> {
+                String ids = request.getParameter("ids");
+                yield ids != null
+                        ? new RequestCost(1 + rows(ids.split(",").length), Priority.HIGH)
+                        : new RequestCost(1 + rows(intParameter(request, "size", 10)), Priority.NORMAL);
+            }
+            case "/search" -> new RequestCost(SEARCH + rows(intParameter(request, "size", 10)), Priority.LOW);
+            case "/sync" -> new RequestCost(1 + rows(intParameter(request, "limit", 1000)), Priority.NORMAL);
+            case "/export" -> new RequestCost(BULK, Priority.LOW);
+            case "/suggest", "/facets" -> new RequestCost(1, Priority.NORMAL);
+            // A single book, or the change feed
+            default -> new RequestCost(1, Priority.HIGH);
+        };
+    }
+
+    private static int rows(int rows) {
+        return (Math.max(0, Math.min(rows, 100_000)) + 99) / 100;
+    }
+
+    // An invalid value is answered 400 by the controller; here it only costs the default
+    private static int intParameter(HttpServletRequest request, String name, int defaultValue) {
+        String value = request.getParameter(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.strip());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -1,17 +1,42 @@
 package com.demo.model;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
+
+import org.hibernate.annotations.SQLRestriction;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.time.LocalDate;
 
 @Entity
+// Soft-deleted books stay in the table until the purge job removes them, but are never loaded
+@SQLRestriction("deleted = false")
+// No index leads with deleted: H2 would pick it for every read and sort its whole range by id,
+// where the primary key already returns live books in id order
+@Table(
+        indexes = {
+                @Index(name = "idx_book_title", columnList = "title"),
+                @Index(name = "idx_book_author_published_date", columnList = "author, publishedDate"),
+                @Index(name = "idx_book_published_date", columnList = "publishedDate"),
+                @Index(name = "idx_book_change_version", columnList = "changeVersion")
+        },
+        // Also the index behind GET /api/books/isbn/{isbn}. Soft-deleted books move their ISBN to deletedIsbn.
+        uniqueConstraints = @UniqueConstraint(name = "uk_book_isbn", columnNames = "isbn"))
 public class Book {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // A pooled sequence (rather than IDENTITY) lets Hibernate batch inserts
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
     private Long id;
 
     private String title;
@@ -22,6 +47,23 @@ public class Book {
 
     private LocalDate publishedDate;
 
+    // Incremented on every update; also serves as the book's entity tag
+    @Version
+    private Long version;
+
+    @JsonIgnore
+    @Column(nullable = false)
+    private boolean deleted;
+
+    // A soft-deleted book's ISBN, kept out of isbn so that a live book can take it again
+    @JsonIgnore
+    private String deletedIsbn;
+
+    // The catalog-wide version of the last write to this book, for GET /api/books/sync; see BookChangeVersions
+    @JsonIgnore
+    @Column(nullable = false)
+    private long changeVersion;
+
     public Long getId() {
         return id;
     }
@@ -51,7 +93,7 @@ public class Book {
     }
 
     public void setIsbn(String isbn) {
-        this.isbn = isbn;
+        this.isbn = normalizeIsbn(isbn);
     }
 
     public LocalDate getPublishedDate() {
@@ -61,4 +103,44 @@ public class Book {
     public void setPublishedDate(LocalDate publishedDate) {
         this.publishedDate = publishedDate;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    // Blank ISBNs are stored as null, so that the unique constraint only applies to real ones
+    public static String normalizeIsbn(String isbn) {
+        if (isbn == null || isbn.isBlank()) {
+            return null;
+        }
+        return isbn.strip();
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+
+    public String getDeletedIsbn() {
+        return deletedIsbn;
+    }
+
+    public void setDeletedIsbn(String deletedIsbn) {
+        this.deletedIsbn = deletedIsbn;
+    }
+
+    public long getChangeVersion() {
+        return changeVersion;
+    }
+
+    public void setChangeVersion(long changeVersion) {
+        this.changeVersion = changeVersion;
+    }
 }
@@ -1,14 +1,50 @@
 package com.demo.repo;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import com.demo.dto.BookView;
 import com.demo.model.Book;
-import org.springframework.data.domain.Page;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface BookRepo extends JpaRepository<Book, Long> {
 
-    Page<Book> findByTitleContainingIgnoreCaseOrAuthorContainingIgnoreCase(
-            String title, String author, Pageable pageable);
+    // Read-only projections for list, search and lookup responses; see BookView
+    String VIEW = "select new com.demo.dto.BookView(b.id, b.title, b.author, b.isbn, b.publishedDate, b.version)"
+            + " from Book b";
+
+    // A page of books without the count query that findAll(Pageable) runs
+    @Query(VIEW + " order by b.id")
+    List<BookView> findViews(Pageable pageable);
+
+    @Query(VIEW + " where b.id > :after order by b.id")
+    List<BookView> findViewsAfter(@Param("after") long after, Limit limit);
+
+    @Query(VIEW + " where b.id in :ids")
+    List<BookView> findViewsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query(VIEW + " where b.id = :id")
+    Optional<BookView> findViewById(@Param("id") Long id);
+
+    @Query(VIEW + " where b.isbn = :isbn")
+    Optional<BookView> findViewByIsbn(@Param("isbn") String isbn);
+
+    // Forward-only cursor over the whole catalog; must be consumed inside a transaction
+    @Query("select b from Book b order by b.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Book> streamAll();
 }
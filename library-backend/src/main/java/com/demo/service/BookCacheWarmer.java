@@ -0,0 +1,71 @@
+package com.demo.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.demo.cache.BookCache;
+import com.demo.dto.BookView;
+import com.demo.dto.PageResponse;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Loads the listing pages every client opens with, and the books on them, into the caches at startup.
+ * Runs before the application is marked ready to accept traffic, so the first requests after a
+ * restart are not the ones that pay for cold caches, database pages and serializers.
+ */
+@Component
+@ConditionalOnProperty(name = "library.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class BookCacheWarmer implements ApplicationRunner {
+
+    private final BookService bookService;
+    private final BookCache bookCache;
+    private final ObjectMapper objectMapper;
+    private final List<Integer> pageSizes;
+    private final int pages;
+    private final Timer warmupTimer;
+
+    public BookCacheWarmer(
+            BookService bookService,
+            BookCache bookCache,
+            ObjectMapper objectMapper,
+            @Value("${library.warmup.page-sizes:10,100}") List<Integer> pageSizes,
+            @Value("${library.cache.pages.count:5}") int pages,
+            MeterRegistry meterRegistry) {
+        this.bookService = bookService;
+        this.bookCache = bookCache;
+        this.objectMapper = objectMapper;
+        this.pageSizes = pageSizes;
+        this.pages = pages;
+        this.warmupTimer = Timer.builder("library.warmup")
+                .description("Time spent warming the caches at startup")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        warmupTimer.record(this::warmUp);
+    }
+
+    private void warmUp() {
+        for (int size : pageSizes) {
+            for (int page = 0; page < pages; page++) {
+                long generation = bookCache.generation();
+                PageResponse<BookView> response = bookService.getAllBooksPaginated(page, size);
+                bookCache.putBooks(response.getContent(), generation);
+                // Builds and caches the serializers the API responses need
+                objectMapper.writeValueAsBytes(response);
+                if (response.getContent().size() < size) {
+                    break;
+                }
+            }
+        }
+    }
+}
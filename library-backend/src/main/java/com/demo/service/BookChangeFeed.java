@@ -0,0 +1,325 @@
+package com.demo.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.demo.dto.BookChange;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Pushes book changes to subscribers as server-sent events. Every change gets the next sequence number,
+ * sent as the event id {@code <epoch>-<sequence>}, where the epoch identifies this run of the server.
+ * A client that reconnects with {@code Last-Event-ID} is sent the changes it missed from a buffer of the
+ * most recent ones; if they are no longer buffered, or the server restarted, it gets a {@code reset} event
+ * and has to reload instead. A write of more than {@code library.changes.max-events} books, such as an
+ * import chunk or a bulk delete, is sent as one {@code reset} rather than a change per book.
+ * <p>
+ * Sequencing, replay and subscriber bookkeeping all run on one dispatcher thread, so writers never block on
+ * clients and a subscriber never sees a change twice or out of order. The dispatcher only queues events:
+ * each subscriber is sent its queue by a sender thread of its own while it has events pending, so a slow
+ * client holds up nobody else. A subscriber that falls {@code library.changes.queue-size} events behind is
+ * sent a {@code reset} in place of its queue and disconnected.
+ */
+@Component
+public class BookChangeFeed {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final int bufferSize;
+    private final int maxEvents;
+    private final int queueSize;
+    private final long timeoutMillis;
+    private final ScheduledExecutorService dispatcher;
+    private final ExecutorService senders;
+    private final Counter published;
+    private final Counter dropped;
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    // Only touched on the dispatcher thread
+    private final Deque<BookChange> recent = new ArrayDeque<>();
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private long delivered;
+
+    // Only touched while holding the monitor, so that sequence order is submission order
+    private long sequence;
+
+    public BookChangeFeed(
+            @Value("${library.changes.buffer-size:10000}") int bufferSize,
+            @Value("${library.changes.max-events:100}") int maxEvents,
+            @Value("${library.changes.queue-size:1000}") int queueSize,
+            @Value("${library.changes.timeout:30m}") Duration timeout,
+            @Value("${library.changes.heartbeat:15s}") Duration heartbeat,
+            MeterRegistry meterRegistry) {
+        this.bufferSize = bufferSize;
+        this.maxEvents = maxEvents;
+        this.queueSize = queueSize;
+        this.timeoutMillis = timeout.toMillis();
+        this.dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "book-changes");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger senderCount = new AtomicInteger();
+        this.senders = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "book-changes-sender-" + senderCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Comments keep idle connections open through proxies, and reveal clients that went away
+        dispatcher.scheduleAtFixedRate(this::heartbeat, heartbeat.toMillis(), heartbeat.toMillis(),
+                TimeUnit.MILLISECONDS);
+        this.published = meterRegistry.counter("library.changes.published");
+        this.dropped = meterRegistry.counter("library.changes.dropped");
+        Gauge.builder("library.changes.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open change feed connections")
+                .register(meterRegistry);
+    }
+
+    public synchronized void publish(List<BookChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        published.increment(changes.size());
+        if (changes.size() > maxEvents) {
+            long reset = ++sequence;
+            dispatcher.execute(() -> deliverReset(reset));
+            return;
+        }
+        for (BookChange change : changes) {
+            change.setSequence(++sequence);
+        }
+        dispatcher.execute(() -> deliver(changes));
+    }
+
+    /**
+     * Opens a feed that starts after {@code lastEventId}, or at the current position if it is null.
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMillis));
+        Runnable unsubscribe = () -> dispatcher.execute(() -> remove(subscriber));
+        subscriber.emitter.onCompletion(unsubscribe);
+        subscriber.emitter.onTimeout(unsubscribe);
+        subscriber.emitter.onError(error -> unsubscribe.run());
+
+        dispatcher.execute(() -> {
+            replay(subscriber, lastEventId);
+            // Unless it already went away, or fell behind during the replay
+            if (subscriber.isOpen()) {
+                subscribers.add(subscriber);
+                subscriberCount.incrementAndGet();
+            }
+        });
+        return subscriber.emitter;
+    }
+
+    private void replay(Subscriber subscriber, String lastEventId) {
+        if (lastEventId == null) {
+            // Gives the client a position to resume from, even if no change happens before it disconnects
+            subscriber.offer(SseEmitter.event().id(eventId(delivered)).name("ready").data(""));
+            return;
+        }
+        Long after = parseSequence(lastEventId);
+        long oldest = recent.isEmpty() ? delivered + 1 : recent.peekFirst().getSequence();
+        if (after == null || after > delivered || after < oldest - 1) {
+            subscriber.offer(reset());
+            return;
+        }
+        for (BookChange change : recent) {
+            if (change.getSequence() > after) {
+                subscriber.offer(event(change));
+            }
+        }
+    }
+
+    // The sequence in an event id of this epoch, or null for an id from another run of the server
+    private Long parseSequence(String lastEventId) {
+        if (lastEventId == null || !lastEventId.startsWith(epoch + "-")) {
+            return null;
+        }
+        try {
+            return Long.parseLong(lastEventId.substring(epoch.length() + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void deliver(List<BookChange> changes) {
+        for (BookChange change : changes) {
+            recent.addLast(change);
+            if (recent.size() > bufferSize) {
+                recent.removeFirst();
+            }
+            delivered = change.getSequence();
+        }
+        for (Subscriber subscriber : subscribers) {
+            for (BookChange change : changes) {
+                subscriber.offer(event(change));
+            }
+        }
+        removeClosed();
+    }
+
+    // No change before the reset can be replayed: a client that missed it has to reload
+    private void deliverReset(long reset) {
+        recent.clear();
+        delivered = reset;
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(reset());
+        }
+        removeClosed();
+    }
+
+    private SseEmitter.SseEventBuilder event(BookChange change) {
+        return SseEmitter.event()
+                .id(eventId(change.getSequence()))
+                .name("change")
+                .data(change, MediaType.APPLICATION_JSON);
+    }
+
+    private SseEmitter.SseEventBuilder reset() {
+        return SseEmitter.event().id(eventId(delivered)).name("reset").data("");
+    }
+
+    private String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.keepAlive();
+        }
+        removeClosed();
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscriber.close();
+        if (subscribers.remove(subscriber)) {
+            subscriberCount.decrementAndGet();
+        }
+    }
+
+    private void removeClosed() {
+        subscribers.removeIf(subscriber -> {
+            if (subscriber.isOpen()) {
+                return false;
+            }
+            subscriberCount.decrementAndGet();
+            return true;
+        });
+    }
+
+    @PreDestroy
+    void close() throws InterruptedException {
+        dispatcher.execute(() -> subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        dispatcher.shutdown();
+        dispatcher.awaitTermination(5, TimeUnit.SECONDS);
+        senders.shutdownNow();
+    }
+
+    /**
+     * The events queued for one client, sent in order by at most one sender at a time.
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        // Guarded by this
+        private final Deque<SseEmitter.SseEventBuilder> pending = new ArrayDeque<>();
+        private boolean sending;
+        private boolean open = true;
+        // Completes the response once the pending events are sent
+        private boolean completing;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        synchronized boolean isOpen() {
+            return open;
+        }
+
+        synchronized void close() {
+            open = false;
+            completing = false;
+            pending.clear();
+        }
+
+        // Called on the dispatcher thread
+        synchronized void offer(SseEmitter.SseEventBuilder event) {
+            if (!open) {
+                return;
+            }
+            if (pending.size() < queueSize) {
+                pending.addLast(event);
+            } else {
+                pending.clear();
+                pending.addLast(reset());
+                open = false;
+                completing = true;
+                dropped.increment();
+            }
+            send();
+        }
+
+        // Only when the connection is idle; a client with events pending is sent those instead
+        synchronized void keepAlive() {
+            if (open && !sending) {
+                pending.addLast(SseEmitter.event().comment("keep-alive"));
+                send();
+            }
+        }
+
+        private void send() {
+            if (!sending) {
+                sending = true;
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                SseEmitter.SseEventBuilder event;
+                synchronized (this) {
+                    event = pending.pollFirst();
+                    if (event == null) {
+                        sending = false;
+                        if (!completing) {
+                            return;
+                        }
+                    }
+                }
+                if (event == null) {
+                    emitter.complete();
+                    return;
+                }
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    synchronized (this) {
+                        close();
+                        sending = false;
+                    }
+                    emitter.completeWithError(e);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.demo.service;
+
+import java.util.TreeSet;
+import java.util.function.LongFunction;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands out the catalog's change versions: every write transaction takes the next one and stores it in
+ * the rows it inserts, updates or tombstones. Versions are taken in order but committed in any order, so
+ * {@link #committed()} only reports a version once every write holding an earlier one has finished; a sync
+ * that reads up to it can never miss a write that commits later. Versions are assigned in memory, which
+ * relies on this being the only instance writing to the database, like the search index and counters do.
+ */
+@Component
+public class BookChangeVersions {
+
+    private final EntityManager entityManager;
+    private final TreeSet<Long> inFlight = new TreeSet<>();
+    private long last;
+    private volatile String epoch;
+    private volatile long horizon;
+
+    public BookChangeVersions(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    // Native SQL, so that soft-deleted books are counted too
+    @PostConstruct
+    void init() {
+        Object[] state = (Object[]) entityManager.createNativeQuery("select epoch, horizon from book_sync_state")
+                .getSingleResult();
+        epoch = (String) state[0];
+        horizon = ((Number) state[1]).longValue();
+        long books = ((Number) entityManager.createNativeQuery(
+                "select coalesce(max(change_version), 0) from book").getSingleResult()).longValue();
+        long tombstones = ((Number) entityManager.createNativeQuery(
+                "select coalesce(max(change_version), 0) from book_tombstone").getSingleResult()).longValue();
+        synchronized (this) {
+            last = Math.max(horizon, Math.max(books, tombstones));
+        }
+    }
+
+    /**
+     * Runs {@code work}, which must commit its transaction before returning, with the next change version.
+     */
+    public <T> T write(LongFunction<T> work) {
+        long version;
+        synchronized (this) {
+            version = ++last;
+            inFlight.add(version);
+        }
+        try {
+            return work.apply(version);
+        } finally {
+            synchronized (this) {
+                inFlight.remove(version);
+            }
+        }
+    }
+
+    /**
+     * The latest version up to which every write has either committed or failed.
+     */
+    public synchronized long committed() {
+        return inFlight.isEmpty() ? last : inFlight.first() - 1;
+    }
+
+    public String epoch() {
+        return epoch;
+    }
+
+    /**
+     * Tombstones up to this version were pruned: a client that synced before it cannot catch up.
+     */
+    public long horizon() {
+        return horizon;
+    }
+
+    void pruned(long version) {
+        horizon = Math.max(horizon, version);
+    }
+}
@@ -0,0 +1,47 @@
+package com.demo.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.demo.repo.BookRepo;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Number of books in the catalog, kept in memory so that listing pages don't need a count(*).
+ * BookService adjusts it on every add and delete; it is periodically reconciled with the
+ * database to correct any drift from writes that raced with the last reconciliation.
+ */
+@Component
+public class BookCounter {
+
+    private final BookRepo bookRepo;
+    private final AtomicLong count = new AtomicLong();
+
+    public BookCounter(BookRepo bookRepo, MeterRegistry meterRegistry) {
+        this.bookRepo = bookRepo;
+        Gauge.builder("library.books.count", count, AtomicLong::get)
+                .description("Books in the catalog")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${library.count.reconcile-interval:5m}",
+            initialDelayString = "${library.count.reconcile-interval:5m}")
+    public void reconcile() {
+        count.set(bookRepo.count());
+    }
+
+    public long get() {
+        return count.get();
+    }
+
+    public void add(long delta) {
+        count.addAndGet(delta);
+    }
+}
@@ -0,0 +1,128 @@
+package com.demo.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import jakarta.persistence.EntityManager;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.demo.model.Book;
+import com.demo.repo.BookRepo;
+
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.SequenceWriter;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+/**
+ * Writes the whole catalog straight from a database cursor to the response.
+ * Each book is detached as soon as it is written, so memory use does not grow with the catalog.
+ */
+@Service
+public class BookExportService {
+
+    private final BookRepo bookRepo;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper smileMapper = new SmileMapper();
+
+    public BookExportService(
+            BookRepo bookRepo,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper) {
+        this.bookRepo = bookRepo;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    public void exportNdjson(OutputStream out) throws IOException {
+        export(out, (writer, book) -> {
+            writer.write(objectMapper.writeValueAsString(book));
+            writer.write('\n');
+        }, null);
+    }
+
+    /**
+     * One Smile document per book, the binary counterpart of the NDJSON export.
+     */
+    public void exportSmile(OutputStream out) throws IOException {
+        try (SequenceWriter writer = smileMapper.writerFor(Book.class).writeValues(out)) {
+            forEachBook(writer::write);
+        }
+    }
+
+    public void exportCsv(OutputStream out) throws IOException {
+        export(out, (writer, book) -> {
+            writer.write(String.valueOf(book.getId()));
+            writer.write(',');
+            writer.write(csv(book.getTitle()));
+            writer.write(',');
+            writer.write(csv(book.getAuthor()));
+            writer.write(',');
+            writer.write(csv(book.getIsbn()));
+            writer.write(',');
+            writer.write(book.getPublishedDate() == null ? "" : book.getPublishedDate().toString());
+            writer.write('\n');
+        }, "id,title,author,isbn,publishedDate\n");
+    }
+
+    private void export(OutputStream out, RowWriter rowWriter, String header) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (header != null) {
+            writer.write(header);
+        }
+        forEachBook(book -> rowWriter.write(writer, book));
+        writer.flush();
+    }
+
+    private void forEachBook(BookWriter bookWriter) throws IOException {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Book> books = bookRepo.streamAll()) {
+                    books.forEach(book -> {
+                        try {
+                            bookWriter.write(book);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        entityManager.detach(book);
+                    });
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(Writer writer, Book book) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface BookWriter {
+        void write(Book book) throws IOException;
+    }
+}
@@ -0,0 +1,155 @@
+package com.demo.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.persistence.EntityManager;
+
+import org.hibernate.Session;
+import org.springframework.stereotype.Component;
+
+import com.demo.dto.BookFacetsResponse;
+import com.demo.model.Book;
+
+/**
+ * Book counts per author and per publication decade, kept in the author_facet and decade_facet tables.
+ * Every write to the catalog adds its {@link Delta} to them in its own transaction, so reading the facets
+ * never has to scan or group the book table. Books without an author or date are not counted, and
+ * authors and decades whose count dropped to zero keep their row but are not reported.
+ */
+@Component
+public class BookFacets {
+
+    // Keys per MERGE statement, to keep the statement and its parameter list bounded
+    private static final int MERGE_BATCH = 500;
+    private static final int MERGE_ATTEMPTS = 3;
+    private static final String DUPLICATE_KEY = "23505";
+
+    private final EntityManager entityManager;
+
+    public BookFacets(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Changes in the facet counts caused by one transaction's writes.
+     */
+    public static class Delta {
+
+        private final Map<String, Long> authors = new HashMap<>();
+        private final Map<Integer, Long> decades = new HashMap<>();
+
+        public Delta added(Book book) {
+            return count(book.getAuthor(), book.getPublishedDate(), 1);
+        }
+
+        public Delta added(String author, LocalDate publishedDate) {
+            return count(author, publishedDate, 1);
+        }
+
+        public Delta removed(String author, LocalDate publishedDate) {
+            return count(author, publishedDate, -1);
+        }
+
+        private Delta count(String author, LocalDate publishedDate, long books) {
+            if (author != null) {
+                authors.merge(author, books, Long::sum);
+            }
+            if (publishedDate != null) {
+                decades.merge(decadeOf(publishedDate), books, Long::sum);
+            }
+            return this;
+        }
+    }
+
+    public static int decadeOf(LocalDate date) {
+        return Math.floorDiv(date.getYear(), 10) * 10;
+    }
+
+    /**
+     * Adds the delta to the facet tables. Must run inside the transaction that made the counted writes.
+     */
+    public void apply(Delta delta) {
+        merge("author_facet", "author", "varchar(255)", delta.authors);
+        merge("decade_facet", "decade", "integer", delta.decades);
+    }
+
+    // One MERGE per batch of keys. Rows are kept when their count drops to zero, so that once a key has a row,
+    // every later MERGE matches it and waits for its row lock. Only two transactions creating the same new
+    // row can still collide: the one that loses gets a duplicate key, and is retried against the row the
+    // other committed. The retry runs on the transaction's own connection, behind a savepoint, because a
+    // failed statement run through Hibernate would mark the whole transaction for rollback.
+    private void merge(String table, String column, String type, Map<?, Long> deltas) {
+        List<Map.Entry<?, Long>> changes = new ArrayList<>();
+        for (Map.Entry<?, Long> entry : deltas.entrySet()) {
+            if (entry.getValue() != 0) {
+                changes.add(entry);
+            }
+        }
+        for (int from = 0; from < changes.size(); from += MERGE_BATCH) {
+            List<Map.Entry<?, Long>> batch = changes.subList(from, Math.min(from + MERGE_BATCH, changes.size()));
+            StringBuilder values = new StringBuilder();
+            for (int i = 0; i < batch.size(); i++) {
+                values.append(i == 0 ? "" : ", ")
+                        .append("(cast(? as ").append(type).append("), cast(? as bigint))");
+            }
+            String merge = "merge into " + table + " f using (values " + values + ") v(k, delta)"
+                    + " on f." + column + " = v.k"
+                    + " when matched then update set books = f.books + v.delta"
+                    + " when not matched and v.delta > 0 then insert (" + column + ", books)"
+                    + " values (v.k, v.delta)";
+            entityManager.unwrap(Session.class).doWork(connection -> executeMerge(connection, merge, batch));
+        }
+    }
+
+    private static void executeMerge(Connection connection, String merge, List<Map.Entry<?, Long>> batch)
+            throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            Savepoint savepoint = connection.setSavepoint();
+            try (PreparedStatement statement = connection.prepareStatement(merge)) {
+                for (int i = 0; i < batch.size(); i++) {
+                    statement.setObject(2 * i + 1, batch.get(i).getKey());
+                    statement.setLong(2 * i + 2, batch.get(i).getValue());
+                }
+                statement.executeUpdate();
+                connection.releaseSavepoint(savepoint);
+                return;
+            } catch (SQLException e) {
+                connection.rollback(savepoint);
+                if (!DUPLICATE_KEY.equals(e.getSQLState()) || attempt == MERGE_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * The {@code authorLimit} authors with the most books, and every decade in order.
+     */
+    @SuppressWarnings("unchecked")
+    public BookFacetsResponse read(int authorLimit) {
+        List<Object[]> authorRows = entityManager
+                .createNativeQuery("select author, books from author_facet where books > 0 order by books desc, author")
+                .setMaxResults(authorLimit)
+                .getResultList();
+        List<Object[]> decadeRows = entityManager
+                .createNativeQuery("select decade, books from decade_facet where books > 0 order by decade")
+                .getResultList();
+        return new BookFacetsResponse(
+                authorRows.stream()
+                        .map(row -> new BookFacetsResponse.AuthorCount(
+                                (String) row[0], ((Number) row[1]).longValue()))
+                        .toList(),
+                decadeRows.stream()
+                        .map(row -> new BookFacetsResponse.DecadeCount(
+                                ((Number) row[0]).intValue(), ((Number) row[1]).longValue()))
+                        .toList());
+    }
+}
@@ -0,0 +1,234 @@
+package com.demo.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import jakarta.persistence.EntityManager;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.demo.dto.BulkImportResponse;
+import com.demo.exceptions.DataErrors;
+import com.demo.model.Book;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectReader;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+/**
+ * Streams books from a JSON array, NDJSON or Smile body into the database in chunks.
+ * Each chunk is persisted in its own transaction and flushed as JDBC batches
+ * (hibernate.jdbc.batch_size), so memory stays flat however large the upload is.
+ */
+@Service
+public class BookImportService {
+
+    // Only the first errors are reported back, to keep huge failing uploads from piling up
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final String NOT_A_BOOK = "A row must be a book object";
+    private static final String NOT_STORED = "The book could not be stored";
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper smileMapper = new SmileMapper();
+    private final BookService bookService;
+    private final BookFacets bookFacets;
+    private final BookChangeVersions changeVersions;
+    private final int chunkSize;
+    private final Counter importedRows;
+    private final Counter failedRows;
+
+    public BookImportService(
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            BookService bookService,
+            BookFacets bookFacets,
+            BookChangeVersions changeVersions,
+            @Value("${library.import.chunk-size:500}") int chunkSize,
+            MeterRegistry meterRegistry) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.bookService = bookService;
+        this.bookFacets = bookFacets;
+        this.changeVersions = changeVersions;
+        this.chunkSize = chunkSize;
+        this.importedRows = meterRegistry.counter("library.import.rows", "outcome", "imported");
+        this.failedRows = meterRegistry.counter("library.import.rows", "outcome", "failed");
+    }
+
+    public BulkImportResponse importJsonArray(InputStream body) {
+        return importValues(objectMapper.readerFor(Book.class), body);
+    }
+
+    /**
+     * Reads a Smile-encoded array of books, or a sequence of Smile documents holding one book each.
+     */
+    public BulkImportResponse importSmile(InputStream body) {
+        return importValues(smileMapper.readerFor(Book.class), body);
+    }
+
+    private BulkImportResponse importValues(ObjectReader reader, InputStream body) {
+        ImportRun run = new ImportRun();
+        try (MappingIterator<Book> rows = reader.readValues(body)) {
+            int row = 0;
+            while (true) {
+                row++;
+                try {
+                    if (!rows.hasNextValue()) {
+                        break;
+                    }
+                    run.add(row, rows.nextValue());
+                } catch (JacksonException e) {
+                    // A malformed array element cannot be skipped reliably, so stop reading here
+                    run.reject(row, e.getOriginalMessage());
+                    break;
+                }
+            }
+        }
+        return run.finish();
+    }
+
+    public BulkImportResponse importNdjson(InputStream body) throws IOException {
+        ImportRun run = new ImportRun();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        int row = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            row++;
+            try {
+                run.add(row, objectMapper.readValue(line, Book.class));
+            } catch (JacksonException e) {
+                run.reject(row, e.getOriginalMessage());
+            }
+        }
+        return run.finish();
+    }
+
+    private class ImportRun {
+
+        private final BulkImportResponse response = new BulkImportResponse();
+        private final long start = System.nanoTime();
+        private final List<Integer> rowNumbers = new ArrayList<>(chunkSize);
+        private final List<Book> books = new ArrayList<>(chunkSize);
+        // Rows retried one by one are rejected after later rows that failed to parse; kept by row number
+        private final TreeMap<Integer, String> errors = new TreeMap<>();
+
+        void add(int row, Book book) {
+            if (book == null) {
+                reject(row, NOT_A_BOOK);
+                return;
+            }
+            book.setId(null);
+            book.setVersion(null);
+            rowNumbers.add(row);
+            books.add(book);
+            if (books.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void reject(int row, String message) {
+            failedRows.increment();
+            response.setFailed(response.getFailed() + 1);
+            errors.put(row, message);
+            if (errors.size() > MAX_REPORTED_ERRORS) {
+                errors.pollLastEntry();
+            }
+        }
+
+        BulkImportResponse finish() {
+            flush();
+            errors.forEach((row, message) -> response.getErrors().add(new BulkImportResponse.RowError(row, message)));
+            response.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+            return response;
+        }
+
+        private void flush() {
+            if (books.isEmpty()) {
+                return;
+            }
+            long chunkStart = System.nanoTime();
+            // The whole chunk shares one change version, also when it is retried row by row
+            List<Book> saved = changeVersions.write(changeVersion -> {
+                for (Book book : books) {
+                    book.setChangeVersion(changeVersion);
+                }
+                try {
+                    return transactionTemplate.execute(status -> persist(books));
+                } catch (RuntimeException e) {
+                    return persistOneByOne();
+                }
+            });
+            bookService.booksAdded(saved);
+
+            long elapsedNanos = System.nanoTime() - chunkStart;
+            importedRows.increment(saved.size());
+            response.setImported(response.getImported() + saved.size());
+            response.getChunks().add(new BulkImportResponse.Chunk(
+                    response.getChunks().size(),
+                    books.size(),
+                    saved.size(),
+                    elapsedNanos / 1_000_000,
+                    books.size() / (elapsedNanos / 1_000_000_000.0)
+            ));
+            rowNumbers.clear();
+            books.clear();
+        }
+
+        // Retries a failed chunk row by row so that only the offending rows are rejected
+        private List<Book> persistOneByOne() {
+            List<Book> saved = new ArrayList<>();
+            for (int i = 0; i < books.size(); i++) {
+                Book book = books.get(i);
+                book.setId(null);
+                try {
+                    saved.addAll(transactionTemplate.execute(status -> persist(List.of(book))));
+                } catch (RuntimeException e) {
+                    book.setId(null);
+                    reject(rowNumbers.get(i), reason(e));
+                }
+            }
+            return saved;
+        }
+    }
+
+    private List<Book> persist(List<Book> books) {
+        BookFacets.Delta delta = new BookFacets.Delta();
+        for (Book book : books) {
+            entityManager.persist(book);
+            delta.added(book);
+        }
+        entityManager.flush();
+        bookFacets.apply(delta);
+        entityManager.clear();
+        return new ArrayList<>(books);
+    }
+
+    // The driver's message names tables and constraints; the client gets the same words as from the API
+    private static String reason(RuntimeException e) {
+        if (DataErrors.isDuplicateIsbn(e)) {
+            return DataErrors.DUPLICATE_ISBN;
+        }
+        String invalid = DataErrors.invalidValue(e);
+        return invalid != null ? invalid : NOT_STORED;
+    }
+}
@@ -0,0 +1,337 @@
+package com.demo.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.demo.dto.BookSuggestion;
+import com.demo.model.Book;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * In-memory inverted index over book titles, authors and ISBNs.
+ * Every query token must match (exactly or as a prefix) a term of the book;
+ * results are ranked by field weight, with exact term matches ranked above prefix matches.
+ * Ranked results are cached per normalized query until the next change to the index.
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final int TITLE = 1;
+    private static final int AUTHOR = 2;
+    private static final int ISBN = 4;
+
+    // term -> (book id -> bitmask of the fields containing the term)
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private final Map<Long, Set<String>> documentTerms = new HashMap<>();
+    // The indexed fields are kept so that suggestions need not touch the database
+    private final Map<Long, Book> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Bumped on every change, so results computed against an older index are never served
+    private final AtomicLong generation = new AtomicLong();
+    private final Cache<ResultKey, List<Long>> results;
+
+    public BookSearchIndex(
+            @Value("${library.search.result-cache.max-size:1000}") long resultCacheSize,
+            MeterRegistry meterRegistry) {
+        this.results = Caffeine.newBuilder()
+                .maximumSize(resultCacheSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, results, "search-results");
+    }
+
+    public void rebuild(Iterable<Book> books) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documentTerms.clear();
+            documents.clear();
+            for (Book book : books) {
+                addDocument(book);
+            }
+            changed();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(Book book) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(book.getId());
+            addDocument(book);
+            changed();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void indexAll(List<Book> books) {
+        lock.writeLock().lock();
+        try {
+            for (Book book : books) {
+                removeDocument(book.getId());
+                addDocument(book);
+            }
+            changed();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The version of the book as it was indexed, or null if it is not indexed.
+     */
+    public Long indexedVersion(Long id) {
+        lock.readLock().lock();
+        try {
+            Book document = documents.get(id);
+            return document == null ? null : document.getVersion();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns whether the book was indexed, i.e. whether it existed.
+     */
+    public boolean remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            boolean removed = removeDocument(id);
+            changed();
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns how many of the books were indexed, i.e. existed.
+     */
+    public int removeAll(Collection<Long> ids) {
+        lock.writeLock().lock();
+        try {
+            int removed = 0;
+            for (Long id : ids) {
+                if (removeDocument(id)) {
+                    removed++;
+                }
+            }
+            changed();
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void changed() {
+        generation.incrementAndGet();
+        results.invalidateAll();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentTerms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of all matching books, best match first.
+     * A query without any searchable token matches every book, in id order.
+     * The returned list is shared and must not be modified.
+     */
+    public List<Long> search(String query) {
+        List<String> tokens = tokenize(query);
+        List<String> normalized = new ArrayList<>(tokens);
+        normalized.sort(Comparator.naturalOrder());
+        ResultKey key = new ResultKey(generation.get(), String.join(" ", normalized));
+        return results.get(key, k -> Collections.unmodifiableList(rank(tokens)));
+    }
+
+    /**
+     * Returns the id and title of the best {@code limit} matches.
+     */
+    public List<BookSuggestion> suggest(String query, int limit) {
+        List<Long> ids = search(query);
+        lock.readLock().lock();
+        try {
+            List<BookSuggestion> suggestions = new ArrayList<>(Math.min(limit, ids.size()));
+            for (Long id : ids) {
+                if (suggestions.size() == limit) {
+                    break;
+                }
+                Book document = documents.get(id);
+                if (document != null) {
+                    suggestions.add(new BookSuggestion(id, document.getTitle()));
+                }
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Long> rank(List<String> tokens) {
+        lock.readLock().lock();
+        try {
+            if (tokens.isEmpty()) {
+                List<Long> all = new ArrayList<>(documentTerms.keySet());
+                all.sort(Comparator.naturalOrder());
+                return all;
+            }
+
+            Map<Long, Double> scores = null;
+            for (String token : tokens) {
+                Map<Long, Double> tokenScores = scoreToken(token);
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    Map<Long, Double> merged = new HashMap<>();
+                    for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                        Double score = tokenScores.get(entry.getKey());
+                        if (score != null) {
+                            merged.put(entry.getKey(), entry.getValue() + score);
+                        }
+                    }
+                    scores = merged;
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<Long, Double>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey()));
+            List<Long> ids = new ArrayList<>(ranked.size());
+            for (Map.Entry<Long, Double> entry : ranked) {
+                ids.add(entry.getKey());
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, Double> scoreToken(String token) {
+        Map<Long, Double> scores = new HashMap<>();
+        NavigableMap<String, Map<Long, Integer>> matches =
+                postings.subMap(token, true, token + Character.MAX_VALUE, false);
+        for (Map.Entry<String, Map<Long, Integer>> term : matches.entrySet()) {
+            double matchWeight = term.getKey().length() == token.length() ? 1.0 : 0.5;
+            for (Map.Entry<Long, Integer> posting : term.getValue().entrySet()) {
+                double score = matchWeight * fieldWeight(posting.getValue());
+                scores.merge(posting.getKey(), score, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    private static double fieldWeight(int fields) {
+        double weight = 0;
+        if ((fields & TITLE) != 0) weight += 3;
+        if ((fields & AUTHOR) != 0) weight += 2;
+        if ((fields & ISBN) != 0) weight += 1;
+        return weight;
+    }
+
+    private void addDocument(Book book) {
+        if (book.getId() == null) {
+            return;
+        }
+        Map<String, Integer> terms = new HashMap<>();
+        for (String term : tokenize(book.getTitle())) {
+            terms.merge(term, TITLE, (a, b) -> a | b);
+        }
+        for (String term : tokenize(book.getAuthor())) {
+            terms.merge(term, AUTHOR, (a, b) -> a | b);
+        }
+        for (String term : isbnTerms(book.getIsbn())) {
+            terms.merge(term, ISBN, (a, b) -> a | b);
+        }
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), k -> new HashMap<>()).put(book.getId(), term.getValue());
+        }
+        documentTerms.put(book.getId(), terms.keySet());
+        documents.put(book.getId(), document(book));
+    }
+
+    private boolean removeDocument(Long id) {
+        documents.remove(id);
+        Set<String> terms = documentTerms.remove(id);
+        if (terms == null) {
+            return false;
+        }
+        for (String term : terms) {
+            Map<Long, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        return true;
+    }
+
+    // A copy of the indexed fields, independent of the (possibly managed) entity
+    private static Book document(Book book) {
+        Book document = new Book();
+        document.setId(book.getId());
+        document.setTitle(book.getTitle());
+        document.setAuthor(book.getAuthor());
+        document.setIsbn(book.getIsbn());
+        document.setVersion(book.getVersion());
+        return document;
+    }
+
+    // ISBNs are indexed both by their hyphen-separated groups and as one compact digit string
+    private static List<String> isbnTerms(String isbn) {
+        List<String> terms = tokenize(isbn);
+        if (terms.size() > 1) {
+            terms.add(String.join("", terms));
+        }
+        return terms;
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return new ArrayList<>();
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    private record ResultKey(long generation, String query) {
+    }
+}
@@ -1,73 +1,732 @@
 package com.demo.service;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
-import org.springframework.data.domain.Page;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.demo.cache.BookCache;
+import com.demo.dto.BookBatchResponse;
+import com.demo.dto.BookChange;
+import com.demo.dto.BookFacetsResponse;
+import com.demo.dto.BookFilter;
+import com.demo.dto.BookOperation;
+import com.demo.dto.BookPatch;
+import com.demo.dto.BulkDeleteResponse;
+import com.demo.dto.BookSuggestion;
+import com.demo.dto.BookVersion;
+import com.demo.dto.BookView;
 import com.demo.dto.PageResponse;
+import com.demo.exceptions.BookConflictException;
 import com.demo.exceptions.BookNotFoundException;
+import com.demo.exceptions.DataErrors;
 import com.demo.model.Book;
 import com.demo.repo.BookRepo;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 @Service
 public class BookService {
+
+    // How many deleted ids committed() remembers; a write reaches it right after committing, long before this
+    // many deletes have come after it
+    private static final int RECENT_DELETES = 100_000;
+
     private BookRepo bookRepo;
+    private final BookSearchIndex searchIndex;
+    private final BookCache bookCache;
+    private final BookCounter bookCounter;
+    private final BookFacets bookFacets;
+    private final BookChangeFeed changeFeed;
+    private final BookChangeVersions changeVersions;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean softDelete;
+    private final int deleteChunkSize;
+    private final int maxPageSize;
+    // Guards the after-commit updates of the search index and the change feed; see committed
+    private final ReentrantLock committedWrites = new ReentrantLock();
+    // Books deleted lately, which a write that committed before the delete must not bring back
+    private final Set<Long> deletedBooks = Collections.newSetFromMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > RECENT_DELETES;
+        }
+    });
+    private final Timer searchIndexTimer;
+    private final DistributionSummary listResults;
+    private final DistributionSummary searchResults;
 
-    public BookService(BookRepo bookRepo) {
+    public BookService(
+            BookRepo bookRepo,
+            BookSearchIndex searchIndex,
+            BookCache bookCache,
+            BookCounter bookCounter,
+            BookFacets bookFacets,
+            BookChangeFeed changeFeed,
+            BookChangeVersions changeVersions,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            @Value("${library.delete.soft:false}") boolean softDelete,
+            @Value("${library.delete.chunk-size:1000}") int deleteChunkSize,
+            @Value("${library.page.max-size:1000}") int maxPageSize,
+            MeterRegistry meterRegistry) {
         this.bookRepo = bookRepo;
+        this.searchIndex = searchIndex;
+        this.bookCache = bookCache;
+        this.bookCounter = bookCounter;
+        this.bookFacets = bookFacets;
+        this.changeFeed = changeFeed;
+        this.changeVersions = changeVersions;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.softDelete = softDelete;
+        this.deleteChunkSize = deleteChunkSize;
+        this.maxPageSize = maxPageSize;
+        this.searchIndexTimer = Timer.builder("library.search.index.lookup")
+                .description("Time spent matching and ranking a query in the search index")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.listResults = resultSummary(meterRegistry, "list");
+        this.searchResults = resultSummary(meterRegistry, "search");
+        Gauge.builder("library.search.index.documents", searchIndex, BookSearchIndex::size)
+                .description("Books held in the search index")
+                .register(meterRegistry);
+    }
+
+    private static DistributionSummary resultSummary(MeterRegistry meterRegistry, String operation) {
+        return DistributionSummary.builder("library.books.results")
+                .description("Books returned per page")
+                .tag("operation", operation)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void buildSearchIndex() {
+        searchIndex.rebuild(bookRepo.findAll());
     }
 
     public List<Book> getAllBooks() {
         return bookRepo.findAll();
     }
 
-    public PageResponse<Book> getAllBooksPaginated(int page, int size) {
+    public PageResponse<BookView> getAllBooksPaginated(int page, int size) {
+        checkPage(page, size);
+        Pageable pageable = PageRequest.of(page, size);
+        PageResponse<BookView> response = bookCache.getPage(page, size, () -> {
+            long totalElements = bookCounter.get();
+            return new PageResponse<>(
+                    bookRepo.findViews(pageable),
+                    page,
+                    size,
+                    totalElements,
+                    (int) Math.ceil((double) totalElements / size)
+            );
+        });
+        listResults.record(response.getContent().size());
+        return response;
+    }
+
+    /**
+     * Keyset pagination: returns up to {@code size} books with an id greater than {@code after}.
+     */
+    public PageResponse<BookView> getBooksAfter(long after, int size) {
+        checkPageSize(size);
+        List<BookView> books = bookRepo.findViewsAfter(after, Limit.of(size + 1));
+        Long nextCursor = null;
+        if (books.size() > size) {
+            books = books.subList(0, size);
+            nextCursor = books.get(size - 1).getId();
+        }
+
+        long totalElements = bookCounter.get();
+        int totalPages = (int) Math.ceil((double) totalElements / size);
+        listResults.record(books.size());
+        return new PageResponse<>(books, size, totalElements, totalPages, nextCursor);
+    }
+
+    /**
+     * A page of the books matching {@code filter}, in its sort order. With {@code after}, the page holds the
+     * books following that id instead, which is only possible in id order.
+     */
+    public PageResponse<BookView> findBooks(BookFilter filter, int page, int size, Long after) {
+        checkPage(page, size);
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<BookView> select = cb.createQuery(BookView.class);
+        Root<Book> book = select.from(Book.class);
+        List<Predicate> conditions = conditions(cb, book, filter);
+        if (after != null) {
+            if (!isIdOrder(filter.getSort())) {
+                throw new IllegalArgumentException("after can only be combined with sort=id");
+            }
+            conditions.add(cb.greaterThan(book.get("id"), after));
+        }
+        select.select(cb.construct(BookView.class, book.get("id"), book.get("title"), book.get("author"),
+                        book.get("isbn"), book.get("publishedDate"), book.get("version")))
+                .where(conditions.toArray(Predicate[]::new))
+                .orderBy(order(cb, book, filter.getSort()));
+        List<BookView> books = entityManager.createQuery(select)
+                .setFirstResult(after != null ? 0 : Math.multiplyExact(page, size))
+                .setMaxResults(after != null ? size + 1 : size)
+                .getResultList();
+
+        long totalElements;
+        if (filter.hasConditions()) {
+            CriteriaQuery<Long> count = cb.createQuery(Long.class);
+            Root<Book> counted = count.from(Book.class);
+            count.select(cb.count(counted)).where(conditions(cb, counted, filter).toArray(Predicate[]::new));
+            totalElements = entityManager.createQuery(count).getSingleResult();
+        } else {
+            totalElements = bookCounter.get();
+        }
+        int totalPages = (int) Math.ceil((double) totalElements / size);
+        listResults.record(Math.min(books.size(), size));
+
+        if (after != null) {
+            Long nextCursor = null;
+            if (books.size() > size) {
+                books = books.subList(0, size);
+                nextCursor = books.get(size - 1).getId();
+            }
+            return new PageResponse<>(books, size, totalElements, totalPages, nextCursor);
+        }
+        return new PageResponse<>(books, page, size, totalElements, totalPages);
+    }
+
+    // Every condition can be answered from an index: author, published_date, and the unique isbn
+    private static List<Predicate> conditions(CriteriaBuilder cb, Root<Book> book, BookFilter filter) {
+        List<Predicate> conditions = new ArrayList<>();
+        if (filter.getAuthor() != null) {
+            conditions.add(cb.equal(book.get("author"), filter.getAuthor()));
+        }
+        if (filter.getYearFrom() != null && filter.getYearTo() != null && filter.getYearFrom() > filter.getYearTo()) {
+            throw new IllegalArgumentException("yearFrom must not be after yearTo");
+        }
+        // Ranges on the column itself rather than year(publishedDate), which no index can serve
+        if (filter.getYearFrom() != null) {
+            conditions.add(cb.greaterThanOrEqualTo(
+                    book.get("publishedDate"), LocalDate.of(filter.getYearFrom(), 1, 1)));
+        }
+        if (filter.getYearTo() != null) {
+            conditions.add(cb.lessThan(book.get("publishedDate"), LocalDate.of(filter.getYearTo() + 1, 1, 1)));
+        }
+        if (filter.getIsbnPrefix() != null && !filter.getIsbnPrefix().isBlank()) {
+            String prefix = filter.getIsbnPrefix().strip()
+                    .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+            conditions.add(cb.like(book.get("isbn"), prefix + "%", '\\'));
+        }
+        return conditions;
+    }
+
+    private static boolean isIdOrder(String sort) {
+        return sort == null || sort.isBlank() || sort.split(",")[0].strip().equals("id");
+    }
+
+    // Each order ends with the id, so that pages are stable, and follows the column order of an index
+    private static List<Order> order(CriteriaBuilder cb, Root<Book> book, String sort) {
+        String key = "id";
+        boolean descending = false;
+        if (sort != null && !sort.isBlank()) {
+            String[] parts = sort.split(",");
+            key = parts[0].strip();
+            if (parts.length > 2 || (parts.length == 2 && !parts[1].strip().matches("(?i)asc|desc"))) {
+                throw new IllegalArgumentException("Invalid sort: " + sort);
+            }
+            descending = parts.length == 2 && parts[1].strip().equalsIgnoreCase("desc");
+        }
+        List<String> columns = switch (key) {
+            case "id" -> List.of("id");
+            case "title" -> List.of("title", "id");
+            case "author" -> List.of("author", "publishedDate", "id");
+            case "publishedDate" -> List.of("publishedDate", "id");
+            default -> throw new IllegalArgumentException("Unsupported sort key: " + key);
+        };
+        boolean desc = descending;
+        return columns.stream()
+                .map(column -> desc ? cb.desc(book.get(column)) : cb.asc(book.get(column)))
+                .toList();
+    }
+
+    public BookFacetsResponse getFacets(int authorLimit) {
+        return bookFacets.read(authorLimit);
+    }
+
+    public PageResponse<BookView> searchBooks(String query, int page, int size) {
+        checkPage(page, size);
         Pageable pageable = PageRequest.of(page, size);
-        Page<Book> bookPage = bookRepo.findAll(pageable);
+        List<Long> matches = searchIndexTimer.record(() -> searchIndex.search(query));
+        int from = (int) Math.min(pageable.getOffset(), matches.size());
+        int to = Math.min(from + size, matches.size());
+        List<Long> pageIds = matches.subList(from, to);
+
+        List<BookView> content = loadBooks(pageIds);
+        searchResults.record(content.size());
+
         return new PageResponse<>(
-                bookPage.getContent(),
-                bookPage.getNumber(),
-                bookPage.getSize(),
-                bookPage.getTotalElements(),
-                bookPage.getTotalPages()
+                content,
+                page,
+                size,
+                matches.size(),
+                (int) Math.ceil((double) matches.size() / size)
         );
     }
 
-    public PageResponse<Book> searchBooks(String query, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size);
-        Page<Book> bookPage = bookRepo.findByTitleContainingIgnoreCaseOrAuthorContainingIgnoreCase(
-                query, query, pageable);
+    /**
+     * Keyset pagination over search results. Pages are in id order rather than by rank,
+     * so that books added or removed between requests do not shift the following pages.
+     */
+    public PageResponse<BookView> searchBooksAfter(String query, long after, int size) {
+        checkPageSize(size);
+        List<Long> matches = new ArrayList<>(searchIndexTimer.record(() -> searchIndex.search(query)));
+        Collections.sort(matches);
+
+        int from = Collections.binarySearch(matches, after);
+        from = from >= 0 ? from + 1 : -from - 1;
+        int to = Math.min(from + size, matches.size());
+        List<Long> pageIds = matches.subList(from, to);
+
+        List<BookView> content = loadBooks(pageIds);
+        searchResults.record(content.size());
+        Long nextCursor = to < matches.size() ? pageIds.get(pageIds.size() - 1) : null;
         return new PageResponse<>(
-                bookPage.getContent(),
-                bookPage.getNumber(),
-                bookPage.getSize(),
-                bookPage.getTotalElements(),
-                bookPage.getTotalPages()
+                content,
+                size,
+                matches.size(),
+                (int) Math.ceil((double) matches.size() / size),
+                nextCursor
         );
     }
 
-    public Book getBook(Long id) {
-        return bookRepo.findById(id).orElseThrow(() -> new BookNotFoundException("Book not found"));
+    public List<BookSuggestion> suggestBooks(String query, int limit) {
+        return searchIndexTimer.record(() -> searchIndex.suggest(query, limit));
+    }
+
+    /**
+     * The books with the given ids, in the order asked for, each once. Cached books are served from the
+     * cache and the rest read with one query; unknown ids are left out.
+     */
+    public List<BookView> getBooks(List<Long> ids) {
+        return loadBooks(ids.stream().distinct().toList());
+    }
+
+    // Loads books through the cache, keeping the order of the given ids
+    private List<BookView> loadBooks(List<Long> ids) {
+        Map<Long, BookView> booksById = bookCache.getBooks(ids, missing ->
+                bookRepo.findViewsByIds(missing).stream()
+                        .collect(Collectors.toMap(BookView::getId, Function.identity())));
+        return ids.stream()
+                .map(booksById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    // A book that a committed write, with the given change version, added, updated or deleted; for an add or
+    // an update, the book as the write committed it
+    private record Written(String type, Long id, long changeVersion, Book book) {
+    }
+
+    /**
+     * Passes a committed write on to the search index and the change feed. The writes of concurrent requests
+     * can get here in another order than they committed in. A book's version grows with every committed write
+     * to it, so a book is left out when the index already holds a later version of it, or when it was deleted
+     * since; subscribers are sent that later write instead. Only the index and feed updates are serialized.
+     */
+    private void committed(List<Written> changes) {
+        committedWrites.lock();
+        try {
+            List<Book> indexed = new ArrayList<>();
+            List<Long> gone = new ArrayList<>();
+            List<BookChange> published = new ArrayList<>(changes.size());
+            for (Written change : changes) {
+                if (BookChange.DELETED.equals(change.type())) {
+                    deletedBooks.add(change.id());
+                    gone.add(change.id());
+                    published.add(BookChange.deleted(change.id(), change.changeVersion()));
+                } else if (!deletedBooks.contains(change.id()) && !isOvertaken(change.book())) {
+                    indexed.add(change.book());
+                    published.add(new BookChange(
+                            change.type(), change.id(), change.changeVersion(), BookView.of(change.book())));
+                }
+            }
+            searchIndex.indexAll(indexed);
+            searchIndex.removeAll(gone);
+            changeFeed.publish(published);
+        } finally {
+            committedWrites.unlock();
+        }
+    }
+
+    private boolean isOvertaken(Book book) {
+        Long indexed = searchIndex.indexedVersion(book.getId());
+        return indexed != null && indexed > book.getVersion();
+    }
+
+    // Bounds the rows, and the work, one request can ask for
+    private void checkPageSize(int size) {
+        if (size < 1 || size > maxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxPageSize);
+        }
+    }
+
+    // The offset of the page must fit the int that JPA takes
+    private void checkPage(int page, int size) {
+        checkPageSize(size);
+        if (page < 0 || (long) page * size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Page must be between 0 and " + Integer.MAX_VALUE / size);
+        }
+    }
+
+    public BookView getBook(Long id) {
+        return bookCache.getBook(id, key ->
+                bookRepo.findViewById(key).orElseThrow(() -> new BookNotFoundException("Book not found")));
+    }
+
+    public BookView getBookByIsbn(String isbn) {
+        String normalized = Book.normalizeIsbn(isbn);
+        if (normalized == null) {
+            throw new BookNotFoundException("Book not found");
+        }
+        return bookRepo.findViewByIsbn(normalized).orElseThrow(() -> new BookNotFoundException("Book not found"));
     }
 
     public Book addBook(Book book) {
-        return bookRepo.save(book);
+        // Versions are assigned by the database, never taken from the client
+        book.setVersion(null);
+        Book saved = changeVersions.write(changeVersion -> transactionTemplate.execute(status -> {
+            book.setChangeVersion(changeVersion);
+            Book inserted = bookRepo.save(book);
+            bookFacets.apply(new BookFacets.Delta().added(inserted));
+            return inserted;
+        }));
+        bookCounter.add(1);
+        bookCache.evictPages();
+        committed(List.of(new Written(BookChange.ADDED, saved.getId(), saved.getChangeVersion(), saved)));
+        return saved;
     }
 
+    // Called for books written outside addBook, e.g. by the bulk import
+    void booksAdded(List<Book> books) {
+        bookCounter.add(books.size());
+        bookCache.evictPages();
+        committed(books.stream()
+                .map(book -> new Written(BookChange.ADDED, book.getId(), book.getChangeVersion(), book))
+                .toList());
+    }
+
+    /**
+     * Replaces every field of the book. If {@code book} carries a version, the update is rejected
+     * unless it is still the current version.
+     */
     public Book updateBook(Long id, Book book) {
-        Book existingBook = bookRepo.findById(id).orElseThrow(() -> new RuntimeException("Book not found"));
+        Book saved = changeVersions.write(changeVersion -> transactionTemplate.execute(status -> {
+            BookFacets.Delta delta = new BookFacets.Delta();
+            Book updated = executeUpdate(id, book, changeVersion, delta);
+            bookFacets.apply(delta);
+            return updated;
+        }));
+        bookCache.evictBook(id);
+        committed(List.of(new Written(BookChange.UPDATED, id, saved.getChangeVersion(), saved)));
+        return saved;
+    }
+
+    private Book executeUpdate(Long id, Book book, long changeVersion, BookFacets.Delta delta) {
+        Book existingBook = bookRepo.findById(id).orElseThrow(() -> new BookNotFoundException("Book not found"));
+        if (book.getVersion() != null && !book.getVersion().equals(existingBook.getVersion())) {
+            throw new BookConflictException("Book " + id + " was changed since version " + book.getVersion());
+        }
+        delta.removed(existingBook.getAuthor(), existingBook.getPublishedDate())
+                .added(book.getAuthor(), book.getPublishedDate());
         existingBook.setTitle(book.getTitle());
         existingBook.setAuthor(book.getAuthor());
         existingBook.setIsbn(book.getIsbn());
         existingBook.setPublishedDate(book.getPublishedDate());
-        return bookRepo.save(existingBook);
+        existingBook.setChangeVersion(changeVersion);
+        return bookRepo.saveAndFlush(existingBook);
+    }
+
+    /**
+     * Applies the patches in one transaction, each as a single UPDATE of the patched columns that only
+     * matches the expected version. If any book is missing or was changed since, nothing is applied.
+     */
+    public List<BookVersion> patchBooks(List<BookPatch> patches) {
+        List<Long> ids = patches.stream().map(BookPatch::getId).distinct().toList();
+        List<Written> changes = new ArrayList<>(ids.size());
+        List<BookVersion> versions = changeVersions.write(changeVersion -> transactionTemplate.execute(status -> {
+            List<BookVersion> updated = new ArrayList<>(patches.size());
+            BookFacets.Delta delta = new BookFacets.Delta();
+            for (BookPatch patch : patches) {
+                if (patch.hasAuthor() || patch.hasPublishedDate()) {
+                    countPatch(patch, delta);
+                }
+                if (executePatch(patch, changeVersion) == 0) {
+                    // Only now is the row read, to tell a missing book from a concurrent change
+                    if (!bookRepo.existsById(patch.getId())) {
+                        throw new BookNotFoundException("Book " + patch.getId() + " not found");
+                    }
+                    throw new BookConflictException(
+                            "Book " + patch.getId() + " was changed since version " + patch.getVersion());
+                }
+                updated.add(new BookVersion(patch.getId(), patch.getVersion() + 1));
+            }
+            bookFacets.apply(delta);
+            // The UPDATEs left the rows locked, so this reads them as this transaction commits them
+            bookRepo.findAllById(ids).forEach(book ->
+                    changes.add(new Written(BookChange.UPDATED, book.getId(), changeVersion, book)));
+            return updated;
+        }));
+
+        bookCache.evictBooks(ids);
+        committed(changes);
+        return versions;
+    }
+
+    // Reads, and locks, the facet fields the patch is about to change; a stale version matches nothing
+    private void countPatch(BookPatch patch, BookFacets.Delta delta) {
+        List<Object[]> rows = entityManager.createQuery(
+                        "select b.author, b.publishedDate from Book b where b.id = :id and b.version = :version",
+                        Object[].class)
+                .setParameter("id", patch.getId())
+                .setParameter("version", patch.getVersion())
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        for (Object[] row : rows) {
+            String author = (String) row[0];
+            LocalDate publishedDate = (LocalDate) row[1];
+            delta.removed(author, publishedDate)
+                    .added(patch.hasAuthor() ? patch.getAuthor() : author,
+                            patch.hasPublishedDate() ? patch.getPublishedDate() : publishedDate);
+        }
+    }
+
+    private int executePatch(BookPatch patch, long changeVersion) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Book> update = cb.createCriteriaUpdate(Book.class);
+        Root<Book> book = update.from(Book.class);
+        if (patch.hasTitle()) update.set(book.<String>get("title"), patch.getTitle());
+        if (patch.hasAuthor()) update.set(book.<String>get("author"), patch.getAuthor());
+        if (patch.hasIsbn()) update.set(book.<String>get("isbn"), patch.getIsbn());
+        if (patch.hasPublishedDate()) update.set(book.get("publishedDate"), patch.getPublishedDate());
+
+        Path<Long> version = book.get("version");
+        update.set(version, cb.sum(version, 1L));
+        update.set(book.<Long>get("changeVersion"), changeVersion);
+        update.where(cb.equal(book.get("id"), patch.getId()), cb.equal(version, patch.getVersion()));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    /**
+     * Applies the operations in order, in one transaction under one change version, so that readers and
+     * the change feed see either all of them or none. The first operation that fails rolls the batch back;
+     * its result carries the error, and the operations after it are not attempted.
+     */
+    public BookBatchResponse applyBatch(List<BookOperation> operations) {
+        List<BookBatchResponse.Result> results = new ArrayList<>(operations.size());
+        // The books created or updated and still there at the end, and the ids deleted
+        Map<Long, Book> written = new LinkedHashMap<>();
+        List<Long> deleted = new ArrayList<>();
+        List<Written> changes = new ArrayList<>();
+        int[] created = new int[1];
+
+        boolean applied = changeVersions.write(changeVersion -> transactionTemplate.execute(status -> {
+            BookFacets.Delta delta = new BookFacets.Delta();
+            for (int i = 0; i < operations.size(); i++) {
+                BookOperation operation = operations.get(i);
+                try {
+                    switch (operation.getOp()) {
+                        case BookOperation.CREATE -> {
+                            Book book = operation.getBook();
+                            book.setId(null);
+                            book.setVersion(null);
+                            book.setChangeVersion(changeVersion);
+                            Book inserted = bookRepo.saveAndFlush(book);
+                            delta.added(inserted);
+                            written.put(inserted.getId(), inserted);
+                            created[0]++;
+                            changes.add(new Written(BookChange.ADDED, inserted.getId(), changeVersion, inserted));
+                            results.add(new BookBatchResponse.Result(i, operation.getOp(), 201,
+                                    inserted.getId(), inserted.getVersion(), null));
+                        }
+                        case BookOperation.UPDATE -> {
+                            Book updated = executeUpdate(operation.getId(), operation.getBook(), changeVersion, delta);
+                            written.put(updated.getId(), updated);
+                            changes.add(new Written(BookChange.UPDATED, updated.getId(), changeVersion, updated));
+                            results.add(new BookBatchResponse.Result(i, operation.getOp(), 200,
+                                    updated.getId(), updated.getVersion(), null));
+                        }
+                        case BookOperation.DELETE -> {
+                            if (executeDelete(List.of(operation.getId()), changeVersion).isEmpty()) {
+                                throw new BookNotFoundException("Book " + operation.getId() + " not found");
+                            }
+                            // The delete bypassed the persistence context: a later operation must not find it there
+                            Book managed = written.remove(operation.getId());
+                            if (managed != null) {
+                                entityManager.detach(managed);
+                            }
+                            deleted.add(operation.getId());
+                            changes.add(new Written(BookChange.DELETED, operation.getId(), changeVersion, null));
+                            results.add(new BookBatchResponse.Result(i, operation.getOp(), 204,
+                                    operation.getId(), null, null));
+                        }
+                        default -> throw new IllegalArgumentException("Unsupported operation: " + operation.getOp());
+                    }
+                } catch (BookNotFoundException | BookConflictException | ObjectOptimisticLockingFailureException
+                         | DataIntegrityViolationException e) {
+                    status.setRollbackOnly();
+                    results.clear();
+                    for (int j = 0; j < operations.size(); j++) {
+                        BookOperation other = operations.get(j);
+                        results.add(j == i ? failed(i, operation, e) : new BookBatchResponse.Result(
+                                j, other.getOp(), 424, other.getId(), null, j < i ? "Rolled back" : "Not attempted"));
+                    }
+                    return false;
+                }
+            }
+            bookFacets.apply(delta);
+            return true;
+        }));
+        if (!applied) {
+            return new BookBatchResponse(false, results);
+        }
+
+        bookCounter.add(created[0] - deleted.size());
+        List<Long> evicted = new ArrayList<>(written.keySet());
+        evicted.addAll(deleted);
+        bookCache.evictBooks(evicted);
+        committed(changes);
+        return new BookBatchResponse(true, results);
+    }
+
+    // The status and message the operation's own endpoint would have answered with; see ApiExceptionHandler
+    private static BookBatchResponse.Result failed(int index, BookOperation operation, RuntimeException e) {
+        int status = e instanceof BookNotFoundException ? 404 : 409;
+        String error;
+        if (e instanceof ObjectOptimisticLockingFailureException) {
+            error = "Book was changed by another request";
+        } else if (e instanceof DataIntegrityViolationException) {
+            if (DataErrors.isDuplicateIsbn(e)) {
+                error = DataErrors.DUPLICATE_ISBN;
+            } else if (DataErrors.invalidValue(e) != null) {
+                status = 400;
+                error = DataErrors.invalidValue(e);
+            } else {
+                error = "The request conflicts with the stored data";
+            }
+        } else {
+            error = e.getMessage();
+        }
+        return new BookBatchResponse.Result(index, operation.getOp(), status, operation.getId(), null, error);
     }
 
     public void deleteBook(Long id) {
-        bookRepo.deleteById(id);
+        deleteBooks(List.of(id));
+    }
+
+    /**
+     * Deletes every book matching the search query. A query without any searchable token is rejected,
+     * since it would match the whole catalog.
+     */
+    public BulkDeleteResponse deleteMatching(String query) {
+        if (BookSearchIndex.tokenize(query).isEmpty()) {
+            throw new IllegalArgumentException("The query must contain at least one word");
+        }
+        return deleteBooks(searchIndex.search(query));
+    }
+
+    /**
+     * Deletes the books with set-based statements of at most {@code library.delete.chunk-size} ids,
+     * each chunk in its own transaction, without loading them first. Unknown ids are ignored.
+     * With {@code library.delete.soft=true} the rows are only marked deleted, and removed later
+     * by {@link BookPurgeJob}.
+     */
+    public BulkDeleteResponse deleteBooks(List<Long> ids) {
+        long start = System.nanoTime();
+        List<Long> distinctIds = ids.stream().distinct().toList();
+        int deleted = 0;
+        int chunks = 0;
+        for (int from = 0; from < distinctIds.size(); from += deleteChunkSize) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + deleteChunkSize, distinctIds.size()));
+            List<Written> deletedBooks = changeVersions.write(changeVersion ->
+                    transactionTemplate.execute(status -> executeDelete(chunk, changeVersion)).stream()
+                            .map(id -> new Written(BookChange.DELETED, id, changeVersion, null))
+                            .toList());
+            deleted += deletedBooks.size();
+            chunks++;
+
+            bookCounter.add(-deletedBooks.size());
+            bookCache.evictBooks(chunk);
+            committed(deletedBooks);
+        }
+        return new BulkDeleteResponse(distinctIds.size(), deleted, softDelete, chunks,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Book's @SQLRestriction keeps both statements from touching rows that are already soft-deleted.
+    // Returns the ids of the books that were deleted, each of which leaves a tombstone for GET /api/books/sync.
+    private List<Long> executeDelete(List<Long> ids, long changeVersion) {
+        // The rows are locked until the delete, so their facet values cannot change in between
+        // and no other transaction can delete them first
+        BookFacets.Delta delta = new BookFacets.Delta();
+        List<Long> existing = new ArrayList<>();
+        entityManager.createQuery(
+                        "select b.id, b.author, b.publishedDate from Book b where b.id in :ids", Object[].class)
+                .setParameter("ids", ids)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList()
+                .forEach(row -> {
+                    existing.add((Long) row[0]);
+                    delta.removed((String) row[1], (LocalDate) row[2]);
+                });
+        if (existing.isEmpty()) {
+            return existing;
+        }
+        bookFacets.apply(delta);
+        entityManager.createNativeQuery("insert into book_tombstone (id, change_version, deleted_at)"
+                        + " select id, :changeVersion, current_timestamp from book where id in (:ids)")
+                .setParameter("changeVersion", changeVersion)
+                .setParameter("ids", existing)
+                .executeUpdate();
+
+        String statement = softDelete
+                ? "update Book b set b.deleted = true, b.deletedIsbn = b.isbn, b.isbn = null,"
+                        + " b.version = b.version + 1 where b.id in :ids"
+                : "delete from Book b where b.id in :ids";
+        entityManager.createQuery(statement)
+                .setParameter("ids", existing)
+                .executeUpdate();
+        return existing;
     }
 }
 
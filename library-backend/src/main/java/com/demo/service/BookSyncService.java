@@ -0,0 +1,167 @@
+package com.demo.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import jakarta.persistence.EntityManager;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.demo.dto.BookSyncResponse;
+import com.demo.dto.BookView;
+
+/**
+ * Delta sync for clients that keep their own copy of the catalog: the books written, and the tombstones of
+ * the books deleted, after a change version. Both are read through their change_version indexes, in version
+ * order, so a sync costs what changed rather than the size of the catalog.
+ */
+@Service
+public class BookSyncService {
+
+    private final BookChangeVersions changeVersions;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration tombstoneRetention;
+
+    public BookSyncService(
+            BookChangeVersions changeVersions,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            @Value("${library.sync.tombstone-retention:30d}") Duration tombstoneRetention) {
+        this.changeVersions = changeVersions;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tombstoneRetention = tombstoneRetention;
+    }
+
+    // A book or tombstone, in change version order
+    private record Change(long version, long id, BookView book) {
+    }
+
+    /**
+     * Returns the changes after {@code since}, at most about {@code limit} of them: a response never ends in
+     * the middle of one write's changes, so a larger write is returned whole. With {@code hasMore}, the
+     * client asks again from the returned version. A client from another epoch, or one that synced before
+     * the tombstones it needs were pruned, is sent the whole catalog with {@code reset}.
+     */
+    public BookSyncResponse sync(long since, String epoch, int limit) {
+        if (since < 0) {
+            throw new IllegalArgumentException("since must not be negative");
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must not be less than one");
+        }
+        // Read first: every write up to it has finished, and later ones are left for the next sync
+        long committed = changeVersions.committed();
+        boolean reset = (epoch != null && !epoch.equals(changeVersions.epoch()))
+                || since > committed
+                || (since > 0 && since < changeVersions.horizon());
+        if (reset) {
+            since = 0;
+        }
+
+        List<Change> changes = new ArrayList<>(readBooks("b.changeVersion > :since", since, committed, limit + 1));
+        // A client starting from nothing has nothing to delete
+        if (since > 0) {
+            changes.addAll(readTombstones("change_version > :since", since, committed, limit + 1));
+        }
+        changes.sort(Comparator.comparingLong(Change::version).thenComparingLong(Change::id));
+
+        long version = committed;
+        boolean hasMore = changes.size() > limit;
+        if (hasMore) {
+            // Each query read one more than the limit, so all changes before the first one left out are here
+            long cut = changes.get(limit).version();
+            if (changes.get(0).version() == cut) {
+                // One write changed more than the limit: return all of it
+                version = cut;
+                changes = new ArrayList<>(readBooks("b.changeVersion = :since", cut, cut, Integer.MAX_VALUE));
+                changes.addAll(readTombstones("change_version = :since", cut, cut, Integer.MAX_VALUE));
+            } else {
+                version = cut - 1;
+                changes.removeIf(change -> change.version() >= cut);
+            }
+        }
+
+        if (!reset && since > 0 && since < changeVersions.horizon()) {
+            // Tombstones were pruned while they were read: some may be missing
+            return sync(since, epoch, limit);
+        }
+
+        List<BookView> books = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        for (Change change : changes) {
+            if (change.book() != null) {
+                books.add(change.book());
+            } else {
+                deleted.add(change.id());
+            }
+        }
+        return new BookSyncResponse(changeVersions.epoch(), version, reset, hasMore, books, deleted);
+    }
+
+    private List<Change> readBooks(String condition, long since, long upTo, int limit) {
+        return entityManager.createQuery(
+                        "select b.id, b.title, b.author, b.isbn, b.publishedDate, b.version, b.changeVersion"
+                                + " from Book b where " + condition + " and b.changeVersion <= :upTo"
+                                + " order by b.changeVersion, b.id", Object[].class)
+                .setParameter("since", since)
+                .setParameter("upTo", upTo)
+                .setMaxResults(limit)
+                .getResultList()
+                .stream()
+                .map(row -> new Change((Long) row[6], (Long) row[0], new BookView((Long) row[0], (String) row[1],
+                        (String) row[2], (String) row[3], (LocalDate) row[4], (Long) row[5])))
+                .toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Change> readTombstones(String condition, long since, long upTo, int limit) {
+        List<Object[]> rows = entityManager.createNativeQuery(
+                        "select id, change_version from book_tombstone where " + condition
+                                + " and change_version <= :upTo order by change_version, id")
+                .setParameter("since", since)
+                .setParameter("upTo", upTo)
+                .setMaxResults(limit)
+                .getResultList();
+        return rows.stream()
+                .map(row -> new Change(((Number) row[1]).longValue(), ((Number) row[0]).longValue(), null))
+                .toList();
+    }
+
+    /**
+     * Removes the tombstones older than {@code library.sync.tombstone-retention}. Clients that last synced
+     * before the newest removed one are reset on their next sync. Returns the number of tombstones removed.
+     */
+    @Scheduled(fixedDelayString = "${library.sync.prune-interval:1h}",
+            initialDelayString = "${library.sync.prune-interval:1h}")
+    public int pruneTombstones() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(tombstoneRetention);
+        Integer pruned = transactionTemplate.execute(status -> {
+            Number newest = (Number) entityManager.createNativeQuery(
+                            "select max(change_version) from book_tombstone where deleted_at < :cutoff")
+                    .setParameter("cutoff", cutoff)
+                    .getSingleResult();
+            if (newest == null) {
+                return 0;
+            }
+            entityManager.createNativeQuery("update book_sync_state set horizon = greatest(horizon, :horizon)")
+                    .setParameter("horizon", newest.longValue())
+                    .executeUpdate();
+            int removed = entityManager.createNativeQuery("delete from book_tombstone where change_version <= :horizon")
+                    .setParameter("horizon", newest.longValue())
+                    .executeUpdate();
+            changeVersions.pruned(newest.longValue());
+            return removed;
+        });
+        return pruned;
+    }
+}
@@ -0,0 +1,18 @@
+-- Pooled ids: Hibernate reserves 50 ids per sequence call (Book.id allocationSize)
+create sequence book_seq start with 1 increment by 50;
+
+create table book (
+    id bigint not null,
+    title varchar(255),
+    author varchar(255),
+    isbn varchar(255),
+    published_date date,
+    version bigint,
+    deleted boolean not null,
+    primary key (id),
+    constraint uk_book_isbn unique (isbn)
+);
+
+create index idx_book_title on book (title);
+create index idx_book_author on book (author);
+create index idx_book_published_date on book (published_date);
@@ -0,0 +1,25 @@
+-- Exact-author filters, and sorting by author, read an author's books in publication order;
+-- the composite index also serves every lookup the author index did
+create index idx_book_author_published_date on book (author, published_date);
+drop index idx_book_author;
+
+-- Pre-aggregated facet counts over live (not soft-deleted) books. BookFacets keeps them up to date
+-- in the same transaction as every insert, update and delete of a book.
+create table author_facet (
+    author varchar(255) not null,
+    books bigint not null,
+    primary key (author)
+);
+
+create table decade_facet (
+    decade integer not null,
+    books bigint not null,
+    primary key (decade)
+);
+
+insert into author_facet (author, books)
+select author, count(*) from book where deleted = false and author is not null group by author;
+
+insert into decade_facet (decade, books)
+select year(published_date) / 10 * 10, count(*) from book
+where deleted = false and published_date is not null group by year(published_date) / 10 * 10;
@@ -0,0 +1,23 @@
+-- Change versions for GET /api/books/sync. Every insert and update of a book stores the next change
+-- version in the row, and every delete leaves a tombstone with one, so that a client holding a copy of
+-- the catalog only fetches what changed after the last version it saw. Existing books are at version 1.
+alter table book add column change_version bigint default 1 not null;
+create index idx_book_change_version on book (change_version);
+
+create table book_tombstone (
+    id bigint not null,
+    change_version bigint not null,
+    deleted_at timestamp not null,
+    primary key (id)
+);
+
+create index idx_book_tombstone_change_version on book_tombstone (change_version);
+
+-- epoch identifies this database, so that clients notice when it was replaced (e.g. the in-memory
+-- default after a restart); tombstones up to horizon were pruned, so older clients have to start over
+create table book_sync_state (
+    epoch varchar(36) not null,
+    horizon bigint not null
+);
+
+insert into book_sync_state (epoch, horizon) values (cast(random_uuid() as varchar(36)), 0);
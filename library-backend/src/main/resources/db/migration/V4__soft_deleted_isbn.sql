@@ -0,0 +1,4 @@
+-- A soft-deleted book moves its ISBN out of isbn, so that uk_book_isbn only covers live books and the
+-- ISBN can be added again before the purge job removes the row
+alter table book add column deleted_isbn varchar(255);
+update book set deleted_isbn = isbn, isbn = null where deleted = true;
@@ -0,0 +1,49 @@
+package com.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.demo.cache.BookCache;
+import com.demo.model.Book;
+import com.demo.service.BookService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+class PersistentProfileTest {
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void keepsTheCatalogAcrossRestartsAndWarmsTheCaches() {
+        Book book = new Book();
+        book.setTitle("Persistent");
+        book.setAuthor("Profile Test");
+        Long id;
+        try (ConfigurableApplicationContext context = start()) {
+            id = context.getBean(BookService.class).addBook(book).getId();
+        }
+
+        try (ConfigurableApplicationContext context = start()) {
+            assertThat(context.getBean(BookService.class).getBook(id).getTitle()).isEqualTo("Persistent");
+            // The first listing page was loaded before the application reported ready
+            assertThat(context.getBean(BookCache.class).stats().get("pages").getSize()).isEqualTo(1);
+            assertThat(context.getBean(MeterRegistry.class).get("library.warmup").timer().count()).isEqualTo(1);
+        }
+    }
+
+    private ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(LibraryManagementSystemApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("persistent")
+                // As arguments: default properties would give way to the application's own
+                .run("--library.data-dir=" + dataDir, "--library.warmup.page-sizes=10");
+    }
+}
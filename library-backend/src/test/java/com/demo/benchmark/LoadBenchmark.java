@@ -0,0 +1,133 @@
+package com.demo.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load generator for comparing the platform-thread and virtual-thread profiles.
+ * Start the backend in the mode under test, then run for example:
+ *
+ * <pre>
+ * ./mvnw test-compile
+ * java -cp target/test-classes com.demo.benchmark.LoadBenchmark http://localhost:8080 200 30 10000
+ * </pre>
+ *
+ * Arguments: base URL, concurrent clients, duration in seconds, books to seed first (optional).
+ * All clients share one address, so start the backend with {@code --library.rate-limit.enabled=false}
+ * unless the rate limit is what is being measured.
+ */
+public class LoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int seed = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(4))
+                .build();
+
+        if (seed > 0) {
+            seed(client, baseUrl, seed);
+        }
+
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong limited = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            results.add(pool.submit(() -> runClient(client, baseUrl, deadline, rejected, limited, failed)));
+        }
+
+        long[] latencies = new long[0];
+        for (Future<long[]> result : results) {
+            long[] clientLatencies = result.get();
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + clientLatencies.length);
+            System.arraycopy(clientLatencies, 0, latencies, offset, clientLatencies.length);
+        }
+        pool.shutdown();
+        Arrays.sort(latencies);
+
+        System.out.printf("clients=%d duration=%ds requests=%d rejected(503)=%d rate-limited(429)=%d failed=%d%n",
+                clients, seconds, latencies.length, rejected.get(), limited.get(), failed.get());
+        System.out.printf("throughput=%.1f req/s%n", latencies.length / (double) seconds);
+        System.out.printf("latency ms: p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), percentile(latencies, 1.0));
+        System.exit(0);
+    }
+
+    private static long[] runClient(HttpClient client, String baseUrl, long deadline,
+                                    AtomicLong rejected, AtomicLong limited, AtomicLong failed) {
+        long[] latencies = new long[1024];
+        int count = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            String path = switch (random.nextInt(5)) {
+                case 0, 1, 2 -> "/api/books?page=" + random.nextInt(20) + "&size=20";
+                case 3 -> "/api/books/" + (1 + random.nextInt(1000));
+                default -> "/api/books/search?query=" + (char) ('a' + random.nextInt(26));
+            };
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 503) {
+                    rejected.incrementAndGet();
+                    continue;
+                }
+                if (response.statusCode() == 429) {
+                    limited.incrementAndGet();
+                    continue;
+                }
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                continue;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = System.nanoTime() - start;
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    private static void seed(HttpClient client, String baseUrl, int books) throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < books; i++) {
+            body.append("{\"title\":\"Title ").append(i).append(" ").append((char) ('a' + i % 26))
+                    .append("\",\"author\":\"Author ").append(i % 500)
+                    .append("\",\"isbn\":\"978-").append(i).append("\"}\n");
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/books/bulk"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        System.out.println("seeded " + books + " books: HTTP " + response.statusCode());
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,142 @@
+package com.demo.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.demo.dto.BookView;
+import com.demo.dto.PageResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class BookCacheTest {
+
+    // Two cached listing pages
+    private final BookCache cache = new BookCache(
+            100, Duration.ofMinutes(1), 2, 10, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+    @Test
+    void loadsABookOnceUntilItIsEvicted() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.getBook(1L, id -> view(id, "First", loads));
+        BookView cached = cache.getBook(1L, id -> view(id, "Second", loads));
+        assertThat(cached.getTitle()).isEqualTo("First");
+
+        cache.evictBook(1L);
+        assertThat(cache.getBook(1L, id -> view(id, "Second", loads)).getTitle()).isEqualTo("Second");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void loadsOnlyTheMissingBooksOfABatch() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.getBook(1L, id -> view(id, "Cached", loads));
+        List<Set<Long>> requested = new ArrayList<>();
+
+        Map<Long, BookView> books = cache.getBooks(List.of(1L, 2L, 3L), missing -> {
+            requested.add(missing);
+            Map<Long, BookView> loaded = new HashMap<>();
+            for (Long id : missing) {
+                loaded.put(id, view(id, "Loaded", loads));
+            }
+            return loaded;
+        });
+
+        assertThat(requested).containsExactly(Set.of(2L, 3L));
+        assertThat(books).containsOnlyKeys(1L, 2L, 3L);
+        assertThat(books.get(1L).getTitle()).isEqualTo("Cached");
+    }
+
+    @Test
+    void cachesTheFirstPagesOnlyUntilABookChanges() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.getPage(0, 10, () -> page(loads));
+        cache.getPage(0, 10, () -> page(loads));
+        assertThat(loads).hasValue(1);
+
+        cache.getPage(2, 10, () -> page(loads));
+        cache.getPage(2, 10, () -> page(loads));
+        assertThat(loads).hasValue(3);
+
+        cache.evictBooks(List.of(42L));
+        cache.getPage(0, 10, () -> page(loads));
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void keepsNoBookABatchReadBeforeAnUpdateEvictedIt() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch updated = new CountDownLatch(1);
+        CompletableFuture<Map<Long, BookView>> read = CompletableFuture.supplyAsync(() ->
+                cache.getBooks(List.of(1L), missing -> {
+                    BookView stale = view(1L, "Before", loads);
+                    loading.countDown();
+                    await(updated);
+                    return Map.of(1L, stale);
+                }));
+
+        await(loading);
+        cache.evictBook(1L);
+        updated.countDown();
+
+        assertThat(read.get(5, TimeUnit.SECONDS).get(1L).getTitle()).isEqualTo("Before");
+        assertThat(cache.getBook(1L, id -> view(id, "After", loads)).getTitle()).isEqualTo("After");
+    }
+
+    @Test
+    void keepsNoPageLoadedBeforeAnUpdateEvictedIt() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch updated = new CountDownLatch(1);
+        CompletableFuture<PageResponse<BookView>> read = CompletableFuture.supplyAsync(() ->
+                cache.getPage(0, 10, () -> {
+                    PageResponse<BookView> stale = page(loads);
+                    loading.countDown();
+                    await(updated);
+                    return stale;
+                }));
+
+        await(loading);
+        cache.evictBook(1L);
+        updated.countDown();
+        PageResponse<BookView> stale = read.get(5, TimeUnit.SECONDS);
+
+        PageResponse<BookView> reloaded = cache.getPage(0, 10, () -> page(loads));
+        assertThat(reloaded).isNotSameAs(stale);
+        assertThat(cache.getPage(0, 10, () -> page(loads))).isSameAs(reloaded);
+        assertThat(loads).hasValue(2);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static BookView view(Long id, String title, AtomicInteger loads) {
+        loads.incrementAndGet();
+        return new BookView(id, title, "Author", null, null, 0L);
+    }
+
+    private static PageResponse<BookView> page(AtomicInteger loads) {
+        loads.incrementAndGet();
+        return new PageResponse<>(List.of(), 0, 10, 0, 0);
+    }
+}
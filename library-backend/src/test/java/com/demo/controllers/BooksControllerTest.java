@@ -0,0 +1,392 @@
+package com.demo.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.SequenceWriter;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class BooksControllerTest {
+
+    private static final String SMILE = "application/x-jackson-smile";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final ObjectMapper smileMapper = new SmileMapper();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void exposesTheApiMetricsToPrometheus() throws Exception {
+        assertThat(get("/api/books?page=0&size=5").statusCode()).isEqualTo(200);
+        assertThat(get("/api/books/search?query=metrics").statusCode()).isEqualTo(200);
+
+        HttpResponse<String> scrape = get("/actuator/prometheus");
+
+        assertThat(scrape.statusCode()).isEqualTo(200);
+        assertThat(scrape.body())
+                .contains("http_server_requests_seconds_bucket{")
+                .contains("uri=\"/api/books/search\"")
+                .contains("library_books_results_count{operation=\"list\"}")
+                .contains("library_books_results_count{operation=\"search\"}")
+                .contains("library_search_index_lookup_seconds_count")
+                .contains("library_search_index_documents")
+                .contains("cache_gets_total{cache=\"pages\"")
+                .contains("hikaricp_connections_active");
+    }
+
+    @Test
+    void answersNotModifiedUntilTheBookChanges() throws Exception {
+        JsonNode book = addBook();
+        String path = "/api/books/" + book.get("id").asLong();
+        String etag = get(path).headers().firstValue("ETag").orElseThrow();
+
+        assertThat(send(request(path).header("If-None-Match", etag)).statusCode()).isEqualTo(304);
+
+        String change = "{\"version\":" + book.get("version").asLong() + ",\"title\":\"Changed\"}";
+        assertThat(patch(path, change).statusCode()).isEqualTo(200);
+        HttpResponse<String> changed = send(request(path).header("If-None-Match", etag));
+        assertThat(changed.statusCode()).isEqualTo(200);
+        assertThat(changed.headers().firstValue("ETag")).isPresent().get().isNotEqualTo(etag);
+    }
+
+    @Test
+    void answersNotModifiedForAnUnchangedPage() throws Exception {
+        addBook();
+        HttpResponse<String> page = get("/api/books?page=0&size=5");
+
+        String etag = page.headers().firstValue("ETag").orElseThrow();
+        assertThat(etag).startsWith("W/");
+        assertThat(send(request("/api/books?page=0&size=5").header("If-None-Match", etag)).statusCode())
+                .isEqualTo(304);
+    }
+
+    @Test
+    void compressesLargeResponsesForClientsThatAcceptGzip() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            addBook();
+        }
+
+        HttpResponse<byte[]> response = client.send(
+                request("/api/books?page=0&size=20").header("Accept-Encoding", "gzip").build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+
+        assertThat(response.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        try (GZIPInputStream body = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            assertThat(objectMapper.readTree(body).get("content").size()).isEqualTo(20);
+        }
+    }
+
+    @Test
+    void rejectsAPatchOnAStaleVersion() throws Exception {
+        JsonNode book = addBook();
+        String path = "/api/books/" + book.get("id").asLong();
+        long version = book.get("version").asLong();
+
+        HttpResponse<String> patched = patch(path, "{\"version\":" + version + ",\"title\":\"First\"}");
+        assertThat(patched.statusCode()).isEqualTo(200);
+        assertThat(objectMapper.readTree(patched.body()).get("version").asLong()).isEqualTo(version + 1);
+
+        HttpResponse<String> stale = patch(path, "{\"version\":" + version + ",\"title\":\"Second\"}");
+        assertThat(stale.statusCode()).isEqualTo(409);
+        assertThat(objectMapper.readTree(get(path).body()).get("title").asString()).isEqualTo("First");
+    }
+
+    @Test
+    void rejectsAPutOnAStaleVersion() throws Exception {
+        JsonNode book = addBook();
+        String path = "/api/books/" + book.get("id").asLong();
+        String change = "{\"version\":" + book.get("version").asLong() + ",\"author\":\"Someone Else\"}";
+        assertThat(patch(path, change).statusCode()).isEqualTo(200);
+
+        HttpResponse<String> stale = send(request(path)
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(book.toString())));
+
+        assertThat(stale.statusCode()).isEqualTo(409);
+    }
+
+    @Test
+    void appliesNoneOfAPatchListWithAStaleVersion() throws Exception {
+        JsonNode first = addBook();
+        JsonNode second = addBook();
+        String patches = "[{\"id\":" + first.get("id").asLong() + ",\"version\":" + first.get("version").asLong()
+                + ",\"title\":\"Applied\"},{\"id\":" + second.get("id").asLong() + ",\"version\":"
+                + (second.get("version").asLong() + 1) + ",\"title\":\"Stale\"}]";
+
+        assertThat(patch("/api/books", patches).statusCode()).isEqualTo(409);
+        JsonNode unchanged = objectMapper.readTree(get("/api/books/" + first.get("id").asLong()).body());
+        assertThat(unchanged.get("title").asString()).isEqualTo(first.get("title").asString());
+    }
+
+    @Test
+    void answersAPatchOfAMissingBookOrWithoutAVersion() throws Exception {
+        JsonNode book = addBook();
+
+        assertThat(patch("/api/books/" + Long.MAX_VALUE, "{\"version\":0,\"title\":\"Gone\"}").statusCode())
+                .isEqualTo(404);
+        assertThat(patch("/api/books/" + book.get("id").asLong(), "{\"title\":\"No version\"}").statusCode())
+                .isEqualTo(400);
+    }
+
+    @Test
+    void findsABookByItsIsbn() throws Exception {
+        String isbn = isbn();
+        JsonNode book = addBook(
+                "{\"title\":\"Isbn Lookup\",\"author\":\"Controller Test\",\"isbn\":\" " + isbn + " \"}");
+
+        HttpResponse<String> found = get("/api/books/isbn/" + isbn);
+
+        assertThat(found.statusCode()).isEqualTo(200);
+        assertThat(objectMapper.readTree(found.body()).get("id").asLong()).isEqualTo(book.get("id").asLong());
+        assertThat(found.headers().firstValue("ETag")).hasValue(
+                "W/\"" + book.get("id").asLong() + "-" + book.get("version").asLong() + "\"");
+        assertThat(get("/api/books/isbn/" + isbn()).statusCode()).isEqualTo(404);
+    }
+
+    @Test
+    void rejectsADuplicateIsbnButNotTwoBlankOnes() throws Exception {
+        String isbn = isbn();
+        addBook("{\"title\":\"First\",\"author\":\"Controller Test\",\"isbn\":\"" + isbn + "\"}");
+
+        assertThat(post("/api/books", "{\"title\":\"Second\",\"isbn\":\"" + isbn + "\"}").statusCode())
+                .isEqualTo(409);
+        addBook("{\"title\":\"Blank\",\"author\":\"Controller Test\",\"isbn\":\" \"}");
+        addBook("{\"title\":\"Blank\",\"author\":\"Controller Test\",\"isbn\":\"\"}");
+    }
+
+    @Test
+    void rollsBackAFailingBatchAndMarksTheOtherOperationsFailedDependency() throws Exception {
+        String created = isbn();
+        String notCreated = isbn();
+
+        HttpResponse<String> batch = post("/api/books/batch", "["
+                + "{\"op\":\"create\",\"book\":{\"title\":\"Batch " + UUID.randomUUID()
+                + "\",\"author\":\"Controller Test\",\"isbn\":\"" + created + "\"}},"
+                + "{\"op\":\"delete\",\"id\":" + Long.MAX_VALUE + "},"
+                + "{\"op\":\"create\",\"book\":{\"title\":\"Batch " + UUID.randomUUID()
+                + "\",\"author\":\"Controller Test\",\"isbn\":\"" + notCreated + "\"}}]");
+
+        // Answered with the status of the operation that failed
+        assertThat(batch.statusCode()).isEqualTo(404);
+        JsonNode response = objectMapper.readTree(batch.body());
+        assertThat(response.get("applied").asBoolean()).isFalse();
+        JsonNode results = response.get("results");
+        assertThat(results.get(0).get("status").asInt()).isEqualTo(424);
+        assertThat(results.get(0).get("error").asString()).isEqualTo("Rolled back");
+        assertThat(results.get(1).get("status").asInt()).isEqualTo(404);
+        assertThat(results.get(2).get("status").asInt()).isEqualTo(424);
+        assertThat(results.get(2).get("error").asString()).isEqualTo("Not attempted");
+        assertThat(get("/api/books/isbn/" + created).statusCode()).isEqualTo(404);
+        assertThat(get("/api/books/isbn/" + notCreated).statusCode()).isEqualTo(404);
+    }
+
+    @Test
+    void readsBooksByIdInTheOrderAsked() throws Exception {
+        long first = addBook().get("id").asLong();
+        long second = addBook().get("id").asLong();
+
+        HttpResponse<String> books = get("/api/books?ids=" + second + "," + Long.MAX_VALUE + "," + first);
+
+        assertThat(books.statusCode()).isEqualTo(200);
+        JsonNode content = objectMapper.readTree(books.body());
+        assertThat(content.size()).isEqualTo(2);
+        assertThat(content.get(0).get("id").asLong()).isEqualTo(second);
+        assertThat(content.get(1).get("id").asLong()).isEqualTo(first);
+
+        String tooMany = LongStream.rangeClosed(1, 1001).mapToObj(String::valueOf).collect(Collectors.joining(","));
+        assertThat(get("/api/books?ids=" + tooMany).statusCode()).isEqualTo(400);
+    }
+
+    @Test
+    void rejectsPagesAboveTheMaximumSize() throws Exception {
+        assertThat(get("/api/books?page=0&size=1000").statusCode()).isEqualTo(200);
+        assertThat(get("/api/books?page=0&size=1001").statusCode()).isEqualTo(400);
+        assertThat(get("/api/books/search?query=controller&page=0&size=1001").statusCode()).isEqualTo(400);
+    }
+
+    @Test
+    void rejectsYearsAndPagesOutOfRange() throws Exception {
+        assertThat(get("/api/books?yearFrom=1999&yearTo=2000").statusCode()).isEqualTo(200);
+        assertThat(get("/api/books?yearFrom=1000000000").statusCode()).isEqualTo(400);
+        assertThat(get("/api/books?yearTo=" + Integer.MAX_VALUE).statusCode()).isEqualTo(400);
+        assertThat(get("/api/books?yearFrom=-1").statusCode()).isEqualTo(400);
+        assertThat(get("/api/books?author=Nobody&page=" + Integer.MAX_VALUE + "&size=10").statusCode())
+                .isEqualTo(400);
+        assertThat(get("/api/books?page=-1&size=10").statusCode()).isEqualTo(400);
+    }
+
+    @Test
+    void answersInSmileWhenTheClientAsksForIt() throws Exception {
+        JsonNode book = addBook();
+        String path = "/api/books/" + book.get("id").asLong();
+
+        HttpResponse<byte[]> smile = client.send(request(path).header("Accept", SMILE).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+
+        assertThat(smile.statusCode()).isEqualTo(200);
+        assertThat(smile.headers().firstValue("Content-Type"))
+                .hasValueSatisfying(type -> assertThat(type).startsWith(SMILE));
+        assertThat(smileMapper.readTree(smile.body()).get("title").asString()).isEqualTo(book.get("title").asString());
+        assertThat(get(path).headers().firstValue("Content-Type"))
+                .hasValueSatisfying(type -> assertThat(type).startsWith("application/json"));
+    }
+
+    @Test
+    void importsASmileBody() throws Exception {
+        String first = isbn();
+        String second = isbn();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (SequenceWriter writer = smileMapper.writer().writeValues(body)) {
+            writer.write(Map.of("title", "Smile " + UUID.randomUUID(), "author", "Controller Test", "isbn", first));
+            writer.write(Map.of("title", "Smile " + UUID.randomUUID(), "author", "Controller Test", "isbn", second));
+        }
+
+        HttpResponse<String> imported = send(request("/api/books/bulk")
+                .header("Content-Type", SMILE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray())));
+
+        assertThat(imported.statusCode()).isEqualTo(200);
+        assertThat(objectMapper.readTree(imported.body()).get("imported").asInt()).isEqualTo(2);
+        assertThat(get("/api/books/isbn/" + first).statusCode()).isEqualTo(200);
+        assertThat(get("/api/books/isbn/" + second).statusCode()).isEqualTo(200);
+    }
+
+    @Test
+    @Timeout(value = 30, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+    void streamsChangesAndReplaysThemAfterAReconnect() throws Exception {
+        String ready;
+        String change;
+        try (Stream<String> feed = subscribe(null)) {
+            Iterator<String> lines = feed.iterator();
+            Map<String, String> event = nextEvent(lines);
+            assertThat(event).containsEntry("event", "ready");
+            ready = event.get("id");
+
+            JsonNode book = addBook();
+            Map<String, String> added = nextEvent(lines);
+            assertThat(added).containsEntry("event", "change");
+            JsonNode data = objectMapper.readTree(added.get("data"));
+            assertThat(data.get("type").asString()).isEqualTo("added");
+            assertThat(data.get("id").asLong()).isEqualTo(book.get("id").asLong());
+            change = added.get("data");
+        }
+
+        // Resumed after the last event seen, the change is sent again
+        try (Stream<String> feed = subscribe(ready)) {
+            assertThat(nextEvent(feed.iterator())).containsEntry("event", "change").containsEntry("data", change);
+        }
+        try (Stream<String> feed = subscribe("another-run-1")) {
+            assertThat(nextEvent(feed.iterator())).containsEntry("event", "reset");
+        }
+    }
+
+    @Test
+    @Timeout(value = 30, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+    void sendsALargeWriteAsOneReset() throws Exception {
+        try (Stream<String> feed = subscribe(null)) {
+            Iterator<String> lines = feed.iterator();
+            assertThat(nextEvent(lines)).containsEntry("event", "ready");
+
+            String books = IntStream.range(0, 101)
+                    .mapToObj(i -> "{\"title\":\"Import " + UUID.randomUUID() + "\",\"author\":\"Controller Test\"}")
+                    .collect(Collectors.joining(",", "[", "]"));
+            assertThat(post("/api/books/bulk", books).statusCode()).isEqualTo(200);
+
+            assertThat(nextEvent(lines)).containsEntry("event", "reset");
+        }
+    }
+
+    private Stream<String> subscribe(String lastEventId) throws IOException, InterruptedException {
+        HttpRequest.Builder request = request("/api/books/changes").header("Accept", "text/event-stream");
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", lastEventId);
+        }
+        HttpResponse<Stream<String>> response = client.send(request.build(), HttpResponse.BodyHandlers.ofLines());
+        assertThat(response.statusCode()).isEqualTo(200);
+        return response.body();
+    }
+
+    // The fields of the next event, skipping comments
+    private static Map<String, String> nextEvent(Iterator<String> lines) {
+        Map<String, String> event = new HashMap<>();
+        while (lines.hasNext()) {
+            String line = lines.next();
+            if (line.isEmpty() && !event.isEmpty()) {
+                return event;
+            }
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                event.merge(line.substring(0, colon), line.substring(colon + 1), (first, next) -> first + "\n" + next);
+            }
+        }
+        throw new AssertionError("The feed ended");
+    }
+
+    private JsonNode addBook() throws IOException, InterruptedException {
+        return addBook("{\"title\":\"Controller " + UUID.randomUUID() + "\",\"author\":\"Controller Test\"}");
+    }
+
+    private JsonNode addBook(String book) throws IOException, InterruptedException {
+        HttpResponse<String> created = post("/api/books", book);
+        assertThat(created.statusCode()).isEqualTo(201);
+        return objectMapper.readTree(created.body());
+    }
+
+    private HttpResponse<String> post(String path, String json) throws IOException, InterruptedException {
+        return send(request(path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json)));
+    }
+
+    private static String isbn() {
+        return "978-" + ThreadLocalRandom.current().nextLong(1_000_000_000L, 10_000_000_000L);
+    }
+
+    private HttpResponse<String> patch(String path, String json) throws IOException, InterruptedException {
+        return send(request(path)
+                .header("Content-Type", "application/json")
+                .method("PATCH", HttpRequest.BodyPublishers.ofString(json)));
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return send(request(path));
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+    }
+}
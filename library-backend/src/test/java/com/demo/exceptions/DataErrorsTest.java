@@ -0,0 +1,35 @@
+package com.demo.exceptions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+class DataErrorsTest {
+
+    @Test
+    void recognizesTheIsbnConstraintOnly() {
+        assertThat(DataErrors.isDuplicateIsbn(violation(
+                "Unique index or primary key violation: \"PUBLIC.UK_BOOK_ISBN_INDEX_1 ON PUBLIC.BOOK(ISBN)\"", "23505")))
+                .isTrue();
+        assertThat(DataErrors.isDuplicateIsbn(violation(
+                "Unique index or primary key violation: \"PUBLIC.PRIMARY_KEY_4 ON PUBLIC.AUTHOR_FACET(AUTHOR)\"", "23505")))
+                .isFalse();
+    }
+
+    @Test
+    void wordsInvalidValuesWithoutTheDriverMessage() {
+        assertThat(DataErrors.invalidValue(violation("Value too long for column \"TITLE CHARACTER VARYING(255)\"", "22001")))
+                .isEqualTo("A field is longer than 255 characters");
+        assertThat(DataErrors.invalidValue(violation("NULL not allowed for column \"TITLE\"", "23502")))
+                .isEqualTo("A required field is missing");
+        assertThat(DataErrors.invalidValue(new IllegalStateException("not from the database"))).isNull();
+    }
+
+    private static RuntimeException violation(String message, String sqlState) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new RuntimeException(new SQLException(message, sqlState)));
+    }
+}
@@ -0,0 +1,171 @@
+package com.demo.filters;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ConcurrencyLimitFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // A single permit, so one running request fills the server
+    private final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(
+            1, Duration.ofMillis(500), Duration.ofMillis(100), Duration.ofMillis(500), meterRegistry);
+
+    @Test
+    void admitsAQueuedRequestOnceAPermitFrees() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<Void> first = run("/api/books/1", blocking(running, finish));
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<MockHttpServletResponse> queued = CompletableFuture.supplyAsync(this::sendUnchecked);
+        Thread.sleep(100);
+        assertThat(queued).isNotDone();
+        finish.countDown();
+
+        assertThat(queued.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(200);
+        first.get(5, TimeUnit.SECONDS);
+        assertThat(available()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsARequestThatWaitedTheQueueTimeout() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<Void> first = run("/api/books/1", blocking(running, finish));
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+        long start = System.nanoTime();
+        MockHttpServletResponse rejected = send("/api/books/2");
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(450);
+        assertThat(rejected.getStatus()).isEqualTo(503);
+        assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(meterRegistry.get("library.concurrency.rejected").tag("priority", "high").counter().count())
+                .isEqualTo(1);
+        finish.countDown();
+        first.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void holdsThePermitUntilAnAsyncResponseCompletes() throws Exception {
+        MockHttpServletRequest export = request("/api/books/export");
+        export.setAsyncSupported(true);
+        filter.doFilter(export, new MockHttpServletResponse(), (request, response) -> request.startAsync());
+
+        assertThat(send("/api/books/1").getStatus()).isEqualTo(503);
+
+        export.getAsyncContext().complete();
+
+        assertThat(send("/api/books/1").getStatus()).isEqualTo(200);
+        assertThat(available()).isEqualTo(1);
+    }
+
+    @Test
+    void releasesThePermitOnceWhenAnAsyncResponseTimesOut() throws Exception {
+        MockHttpServletRequest export = request("/api/books/export");
+        export.setAsyncSupported(true);
+        filter.doFilter(export, new MockHttpServletResponse(), (request, response) -> request.startAsync());
+
+        // A container reports the timeout, then completes the request
+        MockAsyncContext context = (MockAsyncContext) export.getAsyncContext();
+        AsyncEvent event = new AsyncEvent(context);
+        for (AsyncListener listener : context.getListeners()) {
+            listener.onTimeout(event);
+        }
+        context.complete();
+
+        assertThat(available()).isEqualTo(1);
+    }
+
+    @Test
+    void shedsSearchesButQueuesSingleBooksWhileTheQueueIsSlow() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<Void> slow = run("/api/books/1", blocking(running, finish));
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Waits the whole queue timeout, which takes the average wait past shed.low
+        assertThat(send("/api/books/2").getStatus()).isEqualTo(503);
+
+        MockHttpServletResponse search = send("/api/books/search");
+        assertThat(search.getStatus()).isEqualTo(503);
+        assertThat(search.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(meterRegistry.get("library.concurrency.shed").tag("priority", "low").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("library.concurrency.shed").tag("priority", "high").counter().count())
+                .isZero();
+
+        finish.countDown();
+        slow.get(5, TimeUnit.SECONDS);
+        assertThat(send("/api/books/3").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void leavesTheChangeFeedOutOfThePermits() throws Exception {
+        MockHttpServletRequest feed = request("/api/books/changes");
+        feed.setAsyncSupported(true);
+        filter.doFilter(feed, new MockHttpServletResponse(), (request, response) -> request.startAsync());
+
+        assertThat(available()).isEqualTo(1);
+    }
+
+    private MockHttpServletResponse send(String path) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(path), response, new MockFilterChain());
+        return response;
+    }
+
+    private CompletableFuture<Void> run(String path, FilterChain chain) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                filter.doFilter(request(path), new MockHttpServletResponse(), chain);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private MockHttpServletResponse sendUnchecked() {
+        try {
+            return send("/api/books/2");
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private double available() {
+        return meterRegistry.get("library.concurrency.available").gauge().value();
+    }
+
+    private static MockHttpServletRequest request(String path) {
+        return new MockHttpServletRequest("GET", path);
+    }
+
+    private static FilterChain blocking(CountDownLatch running, CountDownLatch finish) {
+        return (request, response) -> {
+            running.countDown();
+            try {
+                finish.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package com.demo.filters;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RateLimitFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // One token a second, three at most
+    private final RateLimitFilter filter = new RateLimitFilter(1, 3, "X-Forwarded-For", 100, meterRegistry);
+
+    @Test
+    void answers429WithRetryAfterOnceTheBurstIsSpent() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertThat(send("GET", "/api/books/1", "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+
+        MockHttpServletResponse rejected = send("GET", "/api/books/1", "10.0.0.1");
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(meterRegistry.get("library.rate-limit.rejected").tag("priority", "high").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void keepsABucketPerClient() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            send("GET", "/api/books/1", "10.0.0.1");
+        }
+
+        assertThat(send("GET", "/api/books/1", "10.0.0.1").getStatus()).isEqualTo(429);
+        assertThat(send("GET", "/api/books/1", "10.0.0.2, 192.168.0.1").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void chargesAtMostTheBurstForAnExpensiveRequest() throws Exception {
+        MockHttpServletResponse export = send("GET", "/api/books/export", "10.0.0.3");
+        assertThat(export.getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse next = send("GET", "/api/books/1", "10.0.0.3");
+        assertThat(next.getStatus()).isEqualTo(429);
+        assertThat(next.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+    }
+
+    @Test
+    void leavesNonApiRequestsAlone() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertThat(send("GET", "/actuator/health", "10.0.0.4").getStatus()).isEqualTo(200);
+        }
+    }
+
+    private MockHttpServletResponse send(String method, String path, String client) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.addHeader("X-Forwarded-For", client);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,47 @@
+package com.demo.filters;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+class RequestCostTest {
+
+    @Test
+    void singleBooksAreCheapAndNeverShed() {
+        assertThat(cost("GET", "/api/books/42")).isEqualTo(new RequestCost(1, RequestCost.Priority.HIGH));
+        assertThat(cost("POST", "/api/books")).isEqualTo(new RequestCost(1, RequestCost.Priority.HIGH));
+        assertThat(cost("PUT", "/api/books/42")).isEqualTo(new RequestCost(1, RequestCost.Priority.HIGH));
+    }
+
+    @Test
+    void chargesForTheRowsARequestCanReturn() {
+        MockHttpServletRequest page = request("GET", "/api/books");
+        page.setParameter("size", "250");
+        assertThat(RequestCost.of(page)).isEqualTo(new RequestCost(4, RequestCost.Priority.NORMAL));
+
+        MockHttpServletRequest search = request("GET", "/api/books/search");
+        search.setParameter("size", "100");
+        assertThat(RequestCost.of(search)).isEqualTo(new RequestCost(6, RequestCost.Priority.LOW));
+
+        MockHttpServletRequest invalid = request("GET", "/api/books");
+        invalid.setParameter("size", "many");
+        assertThat(RequestCost.of(invalid)).isEqualTo(new RequestCost(2, RequestCost.Priority.NORMAL));
+    }
+
+    @Test
+    void bulkAndMultiBookWritesCostMore() {
+        assertThat(cost("POST", "/api/books/bulk")).isEqualTo(new RequestCost(50, RequestCost.Priority.LOW));
+        assertThat(cost("GET", "/api/books/export")).isEqualTo(new RequestCost(50, RequestCost.Priority.LOW));
+        assertThat(cost("POST", "/api/books/batch")).isEqualTo(new RequestCost(10, RequestCost.Priority.NORMAL));
+        assertThat(cost("DELETE", "/api/books")).isEqualTo(new RequestCost(10, RequestCost.Priority.NORMAL));
+    }
+
+    private static RequestCost cost(String method, String path) {
+        return RequestCost.of(request(method, path));
+    }
+
+    private static MockHttpServletRequest request(String method, String path) {
+        return new MockHttpServletRequest(method, path);
+    }
+}
@@ -0,0 +1,72 @@
+package com.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.demo.dto.BookOperation;
+import com.demo.model.Book;
+import com.demo.repo.BookRepo;
+
+@SpringBootTest
+class BookCounterTest {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Autowired
+    private BookCounter bookCounter;
+
+    @Autowired
+    private BookRepo bookRepo;
+
+    @Test
+    void followsEveryAddAndDelete() throws Exception {
+        bookCounter.reconcile();
+        long before = bookCounter.get();
+
+        Book added = bookService.addBook(book());
+        BookOperation delete = new BookOperation();
+        delete.setOp(BookOperation.DELETE);
+        delete.setId(added.getId());
+        bookService.applyBatch(List.of(create(), create(), delete));
+        String ndjson = "{\"title\":\"" + UUID.randomUUID() + "\",\"author\":\"Counter Test\"}\n";
+        bookImportService.importNdjson(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(bookCounter.get()).isEqualTo(before + 3).isEqualTo(bookRepo.count());
+        assertThat(bookService.getAllBooksPaginated(0, 10).getTotalElements()).isEqualTo(before + 3);
+    }
+
+    @Test
+    void reconcilesWithTheDatabase() {
+        bookCounter.add(7);
+
+        bookCounter.reconcile();
+
+        assertThat(bookCounter.get()).isEqualTo(bookRepo.count());
+    }
+
+    private static BookOperation create() {
+        BookOperation create = new BookOperation();
+        create.setOp(BookOperation.CREATE);
+        create.setBook(book());
+        return create;
+    }
+
+    private static Book book() {
+        Book book = new Book();
+        book.setTitle("Counter " + UUID.randomUUID());
+        book.setAuthor("Counter Test");
+        return book;
+    }
+}
@@ -0,0 +1,90 @@
+package com.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.demo.model.Book;
+
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+@SpringBootTest
+class BookExportServiceTest {
+
+    @Autowired
+    private BookExportService bookExportService;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void quotesCsvFieldsThatNeedIt() throws Exception {
+        Book saved = bookService.addBook(book("Say \"hi\", then\nleave"));
+
+        String csv = csv();
+
+        assertThat(csv).startsWith("id,title,author,isbn,publishedDate\n");
+        assertThat(csv).contains(saved.getId() + ",\"Say \"\"hi\"\", then\nleave\",Export Test,"
+                + saved.getIsbn() + ",2001-02-03\n");
+    }
+
+    @Test
+    void writesEveryBookAsOneJsonLineOrSmileDocument() throws Exception {
+        Book saved = bookService.addBook(book("Exported"));
+
+        List<String> lines = ndjson().lines().toList();
+        Book exported = lines.stream()
+                .map(line -> objectMapper.readValue(line, Book.class))
+                .filter(book -> saved.getId().equals(book.getId()))
+                .findFirst()
+                .orElseThrow();
+        assertThat(exported.getTitle()).isEqualTo("Exported");
+        assertThat(exported.getPublishedDate()).isEqualTo(LocalDate.of(2001, 2, 3));
+
+        ByteArrayOutputStream smile = new ByteArrayOutputStream();
+        bookExportService.exportSmile(smile);
+        List<Book> documents = new SmileMapper().readerFor(Book.class).<Book>readValues(smile.toByteArray()).readAll();
+        assertThat(documents).hasSameSizeAs(lines);
+    }
+
+    @Test
+    void leavesDeletedBooksOut() throws Exception {
+        Book saved = bookService.addBook(book("Deleted"));
+        bookService.deleteBook(saved.getId());
+
+        assertThat(csv()).doesNotContain(saved.getIsbn());
+    }
+
+    private String csv() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bookExportService.exportCsv(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private String ndjson() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bookExportService.exportNdjson(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static Book book(String title) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Export Test");
+        book.setIsbn(UUID.randomUUID().toString());
+        book.setPublishedDate(LocalDate.of(2001, 2, 3));
+        return book;
+    }
+}
@@ -0,0 +1,156 @@
+package com.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.demo.dto.BookFacetsResponse;
+import com.demo.dto.BookFilter;
+import com.demo.dto.BookPatch;
+import com.demo.dto.BookView;
+import com.demo.exceptions.BookConflictException;
+import com.demo.model.Book;
+
+@SpringBootTest
+class BookFacetsTest {
+
+    @Autowired
+    private BookService bookService;
+
+    @Test
+    void updateMovesTheBookToItsNewAuthor() {
+        String before = "Author " + UUID.randomUUID();
+        String after = "Author " + UUID.randomUUID();
+        Book saved = bookService.addBook(book(before, LocalDate.of(1951, 5, 1)));
+        assertThat(authorCount(before)).isEqualTo(1);
+
+        bookService.updateBook(saved.getId(), book(after, LocalDate.of(1951, 5, 1)));
+
+        assertThat(authorCount(before)).isZero();
+        assertThat(authorCount(after)).isEqualTo(1);
+    }
+
+    @Test
+    void patchMovesTheBookToItsNewDecadeUnlessItIsStale() {
+        long twenties = decadeCount(1620);
+        long thirties = decadeCount(1630);
+        long forties = decadeCount(1640);
+        Book saved = bookService.addBook(book("Author " + UUID.randomUUID(), LocalDate.of(1625, 1, 1)));
+
+        bookService.patchBooks(List.of(datePatch(saved, LocalDate.of(1634, 1, 1))));
+
+        assertThat(decadeCount(1620)).isEqualTo(twenties);
+        assertThat(decadeCount(1630)).isEqualTo(thirties + 1);
+
+        assertThatThrownBy(() -> bookService.patchBooks(List.of(datePatch(saved, LocalDate.of(1645, 1, 1)))))
+                .isInstanceOf(BookConflictException.class);
+        assertThat(decadeCount(1630)).isEqualTo(thirties + 1);
+        assertThat(decadeCount(1640)).isEqualTo(forties);
+    }
+
+    @Test
+    void deleteRemovesTheBookFromItsAuthorAndDecade() {
+        String author = "Author " + UUID.randomUUID();
+        Book first = bookService.addBook(book(author, LocalDate.of(1712, 1, 1)));
+        bookService.addBook(book(author, LocalDate.of(1719, 1, 1)));
+        assertThat(decadeCount(1710)).isEqualTo(2);
+
+        bookService.deleteBook(first.getId());
+
+        assertThat(authorCount(author)).isEqualTo(1);
+        assertThat(decadeCount(1710)).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentFirstBooksOfAnAuthorAreAllCounted() throws Exception {
+        String author = "Author " + UUID.randomUUID();
+        int books = 20;
+        ExecutorService pool = Executors.newFixedThreadPool(books);
+        try {
+            List<Callable<Book>> adds = new ArrayList<>();
+            for (int i = 0; i < books; i++) {
+                adds.add(() -> bookService.addBook(book(author, LocalDate.of(1605, 1, 1))));
+            }
+            for (Future<Book> added : pool.invokeAll(adds)) {
+                assertThat(added.get().getId()).isNotNull();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertThat(authorCount(author)).isEqualTo(books);
+    }
+
+    @Test
+    void filtersByAuthorAndYearsInTheRequestedOrder() {
+        String author = "Author " + UUID.randomUUID();
+        bookService.addBook(book(author, LocalDate.of(1830, 1, 1)));
+        bookService.addBook(book(author, LocalDate.of(1845, 1, 1)));
+        bookService.addBook(book(author, LocalDate.of(1860, 1, 1)));
+
+        BookFilter filter = new BookFilter();
+        filter.setAuthor(author);
+        filter.setYearFrom(1840);
+        filter.setYearTo(1860);
+        filter.setSort("publishedDate,desc");
+
+        List<BookView> books = bookService.findBooks(filter, 0, 10, null).getContent();
+        assertThat(books).extracting(BookView::getPublishedDate)
+                .containsExactly(LocalDate.of(1860, 1, 1), LocalDate.of(1845, 1, 1));
+    }
+
+    @Test
+    void rejectsAnUnknownSortKeyAndAnEmptyYearRange() {
+        BookFilter sorted = new BookFilter();
+        sorted.setSort("price");
+        assertThatThrownBy(() -> bookService.findBooks(sorted, 0, 10, null))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        BookFilter years = new BookFilter();
+        years.setYearFrom(2000);
+        years.setYearTo(1990);
+        assertThatThrownBy(() -> bookService.findBooks(years, 0, 10, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private long authorCount(String author) {
+        return bookService.getFacets(1000).getAuthors().stream()
+                .filter(count -> count.getAuthor().equals(author))
+                .mapToLong(BookFacetsResponse.AuthorCount::getBooks)
+                .sum();
+    }
+
+    private long decadeCount(int decade) {
+        return bookService.getFacets(1).getDecades().stream()
+                .filter(count -> count.getDecade() == decade)
+                .mapToLong(BookFacetsResponse.DecadeCount::getBooks)
+                .sum();
+    }
+
+    private static BookPatch datePatch(Book book, LocalDate publishedDate) {
+        BookPatch patch = new BookPatch();
+        patch.setId(book.getId());
+        patch.setVersion(book.getVersion());
+        patch.setPublishedDate(publishedDate);
+        return patch;
+    }
+
+    private static Book book(String author, LocalDate publishedDate) {
+        Book book = new Book();
+        book.setTitle("Title");
+        book.setAuthor(author);
+        book.setPublishedDate(publishedDate);
+        return book;
+    }
+}
@@ -0,0 +1,62 @@
+package com.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.demo.dto.BulkImportResponse;
+import com.demo.exceptions.DataErrors;
+
+@SpringBootTest
+class BookImportServiceTest {
+
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Test
+    void reportsRejectedRowsInRowOrderInTheApiWording() throws Exception {
+        String isbn = UUID.randomUUID().toString();
+        String body = String.join("\n",
+                book("First", isbn),
+                book("Same ISBN", isbn),
+                "null",
+                "{\"title\": ",
+                book("x".repeat(300), UUID.randomUUID().toString()),
+                book("Last", UUID.randomUUID().toString()));
+
+        BulkImportResponse response = bookImportService.importNdjson(stream(body));
+
+        assertThat(response.getImported()).isEqualTo(2);
+        assertThat(response.getFailed()).isEqualTo(4);
+        assertThat(response.getErrors()).extracting(BulkImportResponse.RowError::getRow).containsExactly(2, 3, 4, 5);
+        assertThat(response.getErrors().get(0).getMessage()).isEqualTo(DataErrors.DUPLICATE_ISBN);
+        assertThat(response.getErrors().get(1).getMessage()).isEqualTo("A row must be a book object");
+        assertThat(response.getErrors().get(3).getMessage()).isEqualTo("A field is longer than 255 characters");
+    }
+
+    @Test
+    void rejectsANullArrayElement() {
+        String body = "[" + book("Kept", UUID.randomUUID().toString()) + ", null]";
+
+        BulkImportResponse response = bookImportService.importJsonArray(stream(body));
+
+        assertThat(response.getImported()).isEqualTo(1);
+        assertThat(response.getErrors()).extracting(BulkImportResponse.RowError::getRow).containsExactly(2);
+    }
+
+    private static String book(String title, String isbn) {
+        return "{\"title\": \"" + title + "\", \"author\": \"Import Test\", \"isbn\": \"" + isbn
+                + "\", \"publishedDate\": \"2001-01-01\"}";
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
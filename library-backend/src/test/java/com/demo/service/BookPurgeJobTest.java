@@ -0,0 +1,101 @@
+package com.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.demo.dto.BulkDeleteResponse;
+import com.demo.exceptions.BookNotFoundException;
+import com.demo.model.Book;
+
+@SpringBootTest(properties = {"library.delete.soft=true", "library.delete.chunk-size=2"})
+class BookPurgeJobTest {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookPurgeJob bookPurgeJob;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void keepsSoftDeletedBooksHiddenUntilTheyArePurged() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(bookService.addBook(book(word())).getId());
+        }
+        ids.add(Long.MAX_VALUE);
+
+        BulkDeleteResponse response = bookService.deleteBooks(ids);
+
+        assertThat(response.getRequested()).isEqualTo(4);
+        assertThat(response.getDeleted()).isEqualTo(3);
+        assertThat(response.isSoft()).isTrue();
+        assertThat(response.getChunks()).isEqualTo(2);
+        assertThatThrownBy(() -> bookService.getBook(ids.get(0))).isInstanceOf(BookNotFoundException.class);
+        assertThat(rows(ids)).isEqualTo(3);
+
+        // Chunks of two: the job keeps going until a chunk comes back short
+        assertThat(bookPurgeJob.purge()).isGreaterThanOrEqualTo(3);
+        assertThat(rows(ids)).isZero();
+    }
+
+    @Test
+    void deletesTheBooksMatchingAQuery() {
+        String word = word();
+        Book first = bookService.addBook(book(word + " One"));
+        Book second = bookService.addBook(book("Two " + word));
+        Book other = bookService.addBook(book(word()));
+
+        assertThat(bookService.deleteMatching(word).getDeleted()).isEqualTo(2);
+
+        assertThatThrownBy(() -> bookService.getBook(first.getId())).isInstanceOf(BookNotFoundException.class);
+        assertThatThrownBy(() -> bookService.getBook(second.getId())).isInstanceOf(BookNotFoundException.class);
+        assertThat(bookService.getBook(other.getId()).getTitle()).isEqualTo(other.getTitle());
+        assertThatThrownBy(() -> bookService.deleteMatching(" - ")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void freesTheIsbnOfADeletedBook() {
+        String isbn = "978-" + ThreadLocalRandom.current().nextLong(1_000_000_000L, 10_000_000_000L);
+        Book deleted = book(word());
+        deleted.setIsbn(isbn);
+        bookService.deleteBook(bookService.addBook(deleted).getId());
+        assertThatThrownBy(() -> bookService.getBookByIsbn(isbn)).isInstanceOf(BookNotFoundException.class);
+
+        Book readded = book(word());
+        readded.setIsbn(isbn);
+        Long id = bookService.addBook(readded).getId();
+
+        assertThat(bookService.getBookByIsbn(isbn).getId()).isEqualTo(id);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from book where deleted_isbn = ?", Integer.class, isbn))
+                .isEqualTo(1);
+    }
+
+    private int rows(List<Long> ids) {
+        return jdbcTemplate.queryForObject(
+                "select count(*) from book where id in (?, ?, ?)", Integer.class, ids.get(0), ids.get(1), ids.get(2));
+    }
+
+    private static String word() {
+        return "w" + UUID.randomUUID().toString().replace("-", "");
+    }
+
+    private static Book book(String title) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Purge Test");
+        return book;
+    }
+}
@@ -0,0 +1,104 @@
+package com.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.demo.dto.BookSuggestion;
+import com.demo.model.Book;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class BookSearchIndexTest {
+
+    private final BookSearchIndex index = new BookSearchIndex(100, new SimpleMeterRegistry());
+
+    @Test
+    void ranksExactTermsAboveFieldsAbovePrefixes() {
+        index.indexAll(List.of(
+                book(1L, "Dunes of Mars", "Anna Berg", "978-0-00-000001-1"),
+                book(2L, "Dune", "Frank Herbert", "978-0-00-000002-2"),
+                book(3L, "Children of the Sand", "Dune Collective", "978-0-00-000003-3")));
+
+        // Exact in the title, exact in the author, then a prefix of a title word
+        assertThat(index.search("dune")).containsExactly(2L, 3L, 1L);
+    }
+
+    @Test
+    void requiresEveryTokenToMatchAsAWordOrPrefix() {
+        index.indexAll(List.of(
+                book(1L, "Dunes of Mars", "Anna Berg", null),
+                book(2L, "Dune", "Frank Herbert", null)));
+
+        assertThat(index.search("Dun  MAR")).containsExactly(1L);
+        assertThat(index.search("dune venus")).isEmpty();
+        assertThat(index.search("  ")).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void findsIsbnsByGroupOrAsOneNumber() {
+        index.index(book(7L, "Solaris", "Stanislaw Lem", "978-0-15-602760-1"));
+
+        assertThat(index.search("602760")).containsExactly(7L);
+        assertThat(index.search("9780156027601")).containsExactly(7L);
+    }
+
+    @Test
+    void servesNoCachedResultsAfterAChange() {
+        index.index(book(1L, "The Left Hand of Darkness", "Ursula Le Guin", null));
+        assertThat(index.search("darkness")).containsExactly(1L);
+
+        index.index(book(1L, "The Dispossessed", "Ursula Le Guin", null));
+        assertThat(index.search("darkness")).isEmpty();
+        assertThat(index.search("dispossessed")).containsExactly(1L);
+
+        assertThat(index.removeAll(List.of(1L, 2L))).isEqualTo(1);
+        assertThat(index.search("dispossessed")).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void remembersTheVersionEachBookWasIndexedAt() {
+        Book book = book(1L, "Solaris", "Stanislaw Lem", null);
+        book.setVersion(3L);
+        index.index(book);
+
+        assertThat(index.indexedVersion(1L)).isEqualTo(3L);
+        assertThat(index.indexedVersion(2L)).isNull();
+    }
+
+    @Test
+    void sharesCachedResultsBetweenQueriesWithTheSameTokens() {
+        index.index(book(1L, "The Left Hand of Darkness", "Ursula Le Guin", null));
+
+        List<Long> first = index.search("darkness hand");
+
+        assertThat(index.search("  Hand DARKNESS ")).isSameAs(first);
+        assertThat(index.search("hand")).isNotSameAs(first);
+    }
+
+    @Test
+    void suggestsTheTitlesOfTheBestMatches() {
+        index.indexAll(List.of(
+                book(1L, "Foundation and Empire", "Isaac Asimov", null),
+                book(2L, "Foundation", "Isaac Asimov", null),
+                book(3L, "Second Foundation", "Isaac Asimov", null)));
+
+        List<BookSuggestion> suggestions = index.suggest("found", 2);
+
+        assertThat(suggestions).extracting(BookSuggestion::getId).containsExactly(1L, 2L);
+        assertThat(suggestions).extracting(BookSuggestion::getTitle)
+                .containsExactly("Foundation and Empire", "Foundation");
+    }
+
+    private static Book book(Long id, String title, String author, String isbn) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setIsbn(isbn);
+        return book;
+    }
+}
@@ -0,0 +1,243 @@
+package com.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import com.demo.dto.BookBatchResponse;
+import com.demo.dto.BookChange;
+import com.demo.dto.BookOperation;
+import com.demo.dto.BookPatch;
+import com.demo.dto.BookSyncResponse;
+import com.demo.dto.BookView;
+import com.demo.dto.PageResponse;
+import com.demo.model.Book;
+
+@SpringBootTest
+class BookServiceTest {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookSyncService bookSyncService;
+
+    @MockitoSpyBean
+    private BookChangeFeed changeFeed;
+
+    @Test
+    void searchFindsAPatchedBookByItsNewTitleOnly() {
+        String before = word();
+        String after = word();
+        Book saved = bookService.addBook(book("Title " + before));
+
+        BookPatch patch = new BookPatch();
+        patch.setId(saved.getId());
+        patch.setVersion(saved.getVersion());
+        patch.setTitle("Title " + after);
+        bookService.patchBooks(List.of(patch));
+
+        assertThat(search(before)).isEmpty();
+        assertThat(search(after)).containsExactly(saved.getId());
+    }
+
+    @Test
+    void searchNoLongerFindsADeletedBook() {
+        String title = word();
+        Book saved = bookService.addBook(book(title));
+        assertThat(search(title)).containsExactly(saved.getId());
+
+        bookService.deleteBook(saved.getId());
+
+        assertThat(search(title)).isEmpty();
+    }
+
+    @Test
+    void concurrentUpdatesLeaveTheIndexWithTheCommittedTitle() throws Exception {
+        Book saved = bookService.addBook(book(word()));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 20; round++) {
+                String first = word();
+                String second = word();
+                CompletableFuture.allOf(update(saved.getId(), first, executor), update(saved.getId(), second, executor))
+                        .join();
+
+                String stored = bookService.getBook(saved.getId()).getTitle();
+                String lost = stored.equals(first) ? second : first;
+                assertThat(search(stored)).containsExactly(saved.getId());
+                assertThat(search(lost)).isEmpty();
+                assertThat(lastPublished(saved.getId()).getBook().getTitle()).isEqualTo(stored);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void publishesThePatchedBookWhole() {
+        Book saved = bookService.addBook(book(word()));
+        BookPatch patch = new BookPatch();
+        patch.setId(saved.getId());
+        patch.setVersion(saved.getVersion());
+        patch.setTitle("Patched");
+        bookService.patchBooks(List.of(patch));
+
+        BookChange change = lastPublished(saved.getId());
+        assertThat(change.getType()).isEqualTo(BookChange.UPDATED);
+        assertThat(change.getBook().getTitle()).isEqualTo("Patched");
+        assertThat(change.getBook().getAuthor()).isEqualTo("Service Test");
+        assertThat(change.getBook().getVersion()).isEqualTo(saved.getVersion() + 1);
+    }
+
+    @Test
+    void publishesABatchInOperationOrderLeavingOutBooksItDeleted() {
+        Book kept = bookService.addBook(book(word()));
+        Book removed = bookService.addBook(book(word()));
+        BookBatchResponse response = bookService.applyBatch(List.of(
+                operation(BookOperation.UPDATE, removed.getId(), book("Updated, then deleted")),
+                operation(BookOperation.CREATE, null, book(word())),
+                operation(BookOperation.UPDATE, kept.getId(), book("Kept")),
+                operation(BookOperation.DELETE, removed.getId(), null)));
+        assertThat(response.isApplied()).isTrue();
+        Long created = response.getResults().get(1).getId();
+
+        List<BookChange> changes = published(kept.getId(), removed.getId(), created);
+
+        assertThat(changes).extracting(BookChange::getType).containsSubsequence(
+                BookChange.ADDED, BookChange.ADDED, BookChange.ADDED, BookChange.UPDATED, BookChange.DELETED);
+        List<BookChange> batch = changes.subList(changes.size() - 3, changes.size());
+        assertThat(batch).extracting(BookChange::getId).containsExactly(created, kept.getId(), removed.getId());
+        assertThat(batch.get(1).getBook().getTitle()).isEqualTo("Kept");
+        assertThat(batch.get(2).getBook()).isNull();
+    }
+
+    @Test
+    void publishesADeleteWithTheChangeVersionSyncReportsItAt() {
+        Book saved = bookService.addBook(book(word()));
+        bookService.deleteBook(saved.getId());
+
+        BookChange change = lastPublished(saved.getId());
+        assertThat(change.getType()).isEqualTo(BookChange.DELETED);
+        BookSyncResponse before = bookSyncService.sync(change.getChangeVersion() - 1, null, 1000);
+        assertThat(before.getDeleted()).contains(saved.getId());
+        BookSyncResponse after = bookSyncService.sync(change.getChangeVersion(), null, 1000);
+        assertThat(after.getDeleted()).doesNotContain(saved.getId());
+    }
+
+    @Test
+    void pagesSearchResultsByCursorInIdOrder() {
+        String word = word();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(bookService.addBook(book(word + " " + i)).getId());
+        }
+
+        PageResponse<BookView> first = bookService.searchBooksAfter(word, 0, 2);
+        PageResponse<BookView> second = bookService.searchBooksAfter(word, first.getNextCursor(), 2);
+        PageResponse<BookView> third = bookService.searchBooksAfter(word, second.getNextCursor(), 2);
+
+        assertThat(first.getContent()).extracting(BookView::getId).containsExactly(ids.get(0), ids.get(1));
+        assertThat(second.getContent()).extracting(BookView::getId).containsExactly(ids.get(2), ids.get(3));
+        assertThat(third.getContent()).extracting(BookView::getId).containsExactly(ids.get(4));
+        assertThat(third.getNextCursor()).isNull();
+        assertThat(first.getTotalElements()).isEqualTo(5);
+    }
+
+    @Test
+    void aDeleteBeforeTheCursorDoesNotShiftTheNextPage() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ids.add(bookService.addBook(book(word())).getId());
+        }
+
+        PageResponse<BookView> first = bookService.getBooksAfter(ids.get(0) - 1, 2);
+        assertThat(first.getContent()).extracting(BookView::getId).containsExactly(ids.get(0), ids.get(1));
+        bookService.deleteBook(ids.get(0));
+        PageResponse<BookView> second = bookService.getBooksAfter(first.getNextCursor(), 2);
+
+        assertThat(second.getContent()).extracting(BookView::getId).startsWith(ids.get(2), ids.get(3));
+    }
+
+    @Test
+    void servesAChangedBookRatherThanTheCachedOne() {
+        Book saved = bookService.addBook(book("Before"));
+        assertThat(bookService.getBook(saved.getId()).getTitle()).isEqualTo("Before");
+        assertThat(bookService.getBooks(List.of(saved.getId()))).extracting(BookView::getTitle).containsExactly("Before");
+
+        bookService.updateBook(saved.getId(), book("After"));
+
+        assertThat(bookService.getBook(saved.getId()).getTitle()).isEqualTo("After");
+        assertThat(bookService.getBooks(List.of(saved.getId()))).extracting(BookView::getTitle).containsExactly("After");
+    }
+
+    // Either update may lose the race on the row and be rejected, which leaves the other one stored
+    private CompletableFuture<Void> update(Long id, String title, ExecutorService executor) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                bookService.updateBook(id, book(title));
+            } catch (ObjectOptimisticLockingFailureException e) {
+                // The other update won
+            }
+        }, executor);
+    }
+
+    // Every change published for the books, in feed order
+    @SuppressWarnings("unchecked")
+    private List<BookChange> published(Long... ids) {
+        ArgumentCaptor<List<BookChange>> captor = ArgumentCaptor.forClass(List.class);
+        verify(changeFeed, atLeastOnce()).publish(captor.capture());
+        List<Long> wanted = List.of(ids);
+        return captor.getAllValues().stream()
+                .flatMap(List::stream)
+                .filter(change -> wanted.contains(change.getId()))
+                .sorted(Comparator.comparingLong(BookChange::getSequence))
+                .toList();
+    }
+
+    private BookChange lastPublished(Long id) {
+        List<BookChange> changes = published(id);
+        return changes.get(changes.size() - 1);
+    }
+
+    private static BookOperation operation(String op, Long id, Book book) {
+        BookOperation operation = new BookOperation();
+        operation.setOp(op);
+        operation.setId(id);
+        operation.setBook(book);
+        return operation;
+    }
+
+    private List<Long> search(String word) {
+        return bookService.searchBooks(word, 0, 10).getContent().stream().map(BookView::getId).toList();
+    }
+
+    // A single search token that no other book contains
+    private static String word() {
+        return "w" + UUID.randomUUID().toString().replace("-", "");
+    }
+
+    private static Book book(String title) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Service Test");
+        book.setPublishedDate(LocalDate.of(1999, 1, 1));
+        return book;
+    }
+}
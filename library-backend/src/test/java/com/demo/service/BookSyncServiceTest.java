@@ -0,0 +1,113 @@
+package com.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.demo.dto.BookBatchResponse;
+import com.demo.dto.BookOperation;
+import com.demo.dto.BookSyncResponse;
+import com.demo.dto.BookView;
+import com.demo.model.Book;
+
+@SpringBootTest
+class BookSyncServiceTest {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookSyncService bookSyncService;
+
+    @Autowired
+    private BookChangeVersions changeVersions;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void neverSplitsOneWriteAcrossResponses() {
+        Book first = bookService.addBook(book("First"));
+        List<BookOperation> creates = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            BookOperation create = new BookOperation();
+            create.setOp(BookOperation.CREATE);
+            create.setBook(book("Batch " + i));
+            creates.add(create);
+        }
+        BookBatchResponse batch = bookService.applyBatch(creates);
+        Book last = bookService.addBook(book("Last"));
+        List<Long> batchIds = batch.getResults().stream().map(BookBatchResponse.Result::getId).toList();
+
+        BookSyncResponse before = bookSyncService.sync(first.getChangeVersion() - 1, changeVersions.epoch(), 3);
+        assertThat(ids(before)).containsExactly(first.getId());
+        assertThat(before.isHasMore()).isTrue();
+
+        // One write larger than the limit comes whole
+        BookSyncResponse whole = bookSyncService.sync(before.getVersion(), before.getEpoch(), 3);
+        assertThat(ids(whole)).containsExactlyElementsOf(batchIds);
+        assertThat(whole.isHasMore()).isTrue();
+
+        BookSyncResponse after = bookSyncService.sync(whole.getVersion(), whole.getEpoch(), 3);
+        assertThat(ids(after)).containsExactly(last.getId());
+        assertThat(after.isHasMore()).isFalse();
+        assertThat(after.getVersion()).isEqualTo(changeVersions.committed());
+    }
+
+    @Test
+    void reportsDeletesAfterTheClientsVersion() {
+        Book saved = bookService.addBook(book("Deleted"));
+        long since = changeVersions.committed();
+        bookService.deleteBook(saved.getId());
+
+        BookSyncResponse sync = bookSyncService.sync(since, changeVersions.epoch(), 100);
+
+        assertThat(sync.isReset()).isFalse();
+        assertThat(sync.getDeleted()).containsExactly(saved.getId());
+        assertThat(sync.getBooks()).isEmpty();
+    }
+
+    @Test
+    void resetsAClientOfAnotherEpochOrFromTheFuture() {
+        long committed = changeVersions.committed();
+
+        assertThat(bookSyncService.sync(committed, "another-epoch", 1).isReset()).isTrue();
+        assertThat(bookSyncService.sync(committed + 100, changeVersions.epoch(), 1).isReset()).isTrue();
+        assertThat(bookSyncService.sync(committed, changeVersions.epoch(), 1).isReset()).isFalse();
+    }
+
+    @Test
+    void resetsAClientThatNeedsPrunedTombstones() {
+        Book saved = bookService.addBook(book("Pruned"));
+        long since = changeVersions.committed();
+        bookService.deleteBook(saved.getId());
+        jdbcTemplate.update("update book_tombstone set deleted_at = ? where id = ?",
+                LocalDate.of(2000, 1, 1).atStartOfDay(), saved.getId());
+
+        assertThat(bookSyncService.pruneTombstones()).isGreaterThanOrEqualTo(1);
+
+        BookSyncResponse stale = bookSyncService.sync(since, changeVersions.epoch(), 1);
+        assertThat(stale.isReset()).isTrue();
+        assertThat(stale.getDeleted()).isEmpty();
+        assertThat(bookSyncService.sync(changeVersions.committed(), changeVersions.epoch(), 1).isReset()).isFalse();
+    }
+
+    private static List<Long> ids(BookSyncResponse sync) {
+        return sync.getBooks().stream().map(BookView::getId).toList();
+    }
+
+    private static Book book(String title) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Sync Test");
+        book.setPublishedDate(LocalDate.of(2010, 1, 1));
+        return book;
+    }
+}
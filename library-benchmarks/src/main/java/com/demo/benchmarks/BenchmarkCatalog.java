@@ -0,0 +1,84 @@
+package com.demo.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.demo.LibraryManagementSystemApplication;
+import com.demo.model.Book;
+import com.demo.service.BookImportService;
+
+/**
+ * Starts the backend without a web server on a private in-memory H2 database
+ * and seeds it with a deterministic catalog.
+ */
+public final class BenchmarkCatalog {
+
+    static final String[] WORDS = {
+            "history", "garden", "river", "night", "winter", "empire", "ocean", "silent", "machine", "shadow",
+            "journey", "kingdom", "secret", "light", "stone", "city", "music", "glass", "storm", "memory",
+            "island", "letters", "mountain", "fire", "dream", "forest", "war", "summer", "house", "road"
+    };
+
+    private static final int SEED_BATCH = 10_000;
+
+    private BenchmarkCatalog() {
+    }
+
+    public static ConfigurableApplicationContext start(int rows) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(LibraryManagementSystemApplication.class)
+                .web(WebApplicationType.NONE)
+                // As arguments, since application.properties overrides default properties
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN");
+        seed(context.getBean(BookImportService.class), rows);
+        return context;
+    }
+
+    private static void seed(BookImportService importService, int rows) {
+        for (int from = 0; from < rows; from += SEED_BATCH) {
+            StringBuilder ndjson = new StringBuilder();
+            for (int i = from; i < Math.min(rows, from + SEED_BATCH); i++) {
+                ndjson.append("{\"title\":\"").append(title(i))
+                        .append("\",\"author\":\"Author ").append(i % 5000)
+                        .append("\",\"isbn\":\"978-").append(1_000_000_000L + i)
+                        .append("\",\"publishedDate\":\"").append(LocalDate.of(1900 + i % 125, 1 + i % 12, 1 + i % 28))
+                        .append("\"}\n");
+            }
+            try {
+                importService.importNdjson(new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public static List<Book> books(int count) {
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Book book = new Book();
+            book.setId((long) i + 1);
+            book.setTitle(title(i));
+            book.setAuthor("Author " + i % 5000);
+            book.setIsbn("978-" + (1_000_000_000L + i));
+            book.setPublishedDate(LocalDate.of(1900 + i % 125, 1 + i % 12, 1 + i % 28));
+            books.add(book);
+        }
+        return books;
+    }
+
+    static String title(int i) {
+        return "The " + WORDS[i % WORDS.length] + " of " + WORDS[(i / WORDS.length) % WORDS.length] + " " + i;
+    }
+}
@@ -0,0 +1,89 @@
+package com.demo.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.demo.dto.BookView;
+import com.demo.model.Book;
+import com.demo.repo.BookRepo;
+
+/**
+ * Loads one page of books straight from the database (no cache) as managed entities and as
+ * {@link BookView} projections, each in its own transaction. Entities are registered in the
+ * persistence context with a snapshot of their state and dirty-checked at commit; projections are not.
+ * Run with {@code -prof gc} to compare allocation per page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BookProjectionBenchmark {
+
+    private static final int ROWS = 100_000;
+
+    @Param({"20", "100", "1000"})
+    private int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkCatalog.start(ROWS);
+        entityManager = context.getBean(EntityManager.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Book> entities() {
+        long after = randomCursor();
+        return transactionTemplate.execute(status -> entityManager
+                .createQuery("select b from Book b where b.id > :after order by b.id", Book.class)
+                .setParameter("after", after)
+                .setMaxResults(pageSize)
+                .getResultList());
+    }
+
+    @Benchmark
+    public List<BookView> projections() {
+        long after = randomCursor();
+        return transactionTemplate.execute(status -> entityManager
+                .createQuery(BookRepo.VIEW + " where b.id > :after order by b.id", BookView.class)
+                .setParameter("after", after)
+                .setMaxResults(pageSize)
+                .getResultList());
+    }
+
+    // Keyset reads, so that skipping rows does not dominate the measurement
+    private long randomCursor() {
+        return ThreadLocalRandom.current().nextLong(ROWS - pageSize);
+    }
+}
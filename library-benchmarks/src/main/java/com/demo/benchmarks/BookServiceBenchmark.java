@@ -0,0 +1,78 @@
+package com.demo.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.demo.dto.BookView;
+import com.demo.dto.PageResponse;
+import com.demo.model.Book;
+import com.demo.service.BookService;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BookServiceBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private BookService bookService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkCatalog.start(rows);
+        bookService = context.getBean(BookService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public PageResponse<BookView> getAllBooksPaginated() {
+        int page = ThreadLocalRandom.current().nextInt(rows / PAGE_SIZE);
+        return bookService.getAllBooksPaginated(page, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public PageResponse<BookView> searchBooks() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String query = BenchmarkCatalog.WORDS[random.nextInt(BenchmarkCatalog.WORDS.length)];
+        return bookService.searchBooks(query, random.nextInt(10), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public BookView getBook() {
+        return bookService.getBook(1 + ThreadLocalRandom.current().nextLong(rows));
+    }
+
+    @Benchmark
+    public Book addBook() {
+        Book book = new Book();
+        book.setTitle("Benchmark " + ThreadLocalRandom.current().nextInt());
+        book.setAuthor("Benchmark Author");
+        return bookService.addBook(book);
+    }
+}
@@ -0,0 +1,80 @@
+package com.demo.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.demo.dto.PageResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.service.BookJson;
+
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Compares how the JavaFX client decodes a page of books: the former path (body as a String,
+ * then a JsonNode tree, then a Book[]) against the typed reader of {@link BookJson} on the byte stream.
+ * Run with {@code -prof gc} to compare allocation per page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FrontendPageParsingBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int pageSize;
+
+    private byte[] body;
+    private ObjectMapper treeMapper;
+    private BookJson bookJson;
+
+    @Setup
+    public void setUp() {
+        // The body is produced by the backend's own serializer, as it would be sent over the wire
+        PageResponse<com.demo.model.Book> page =
+                new PageResponse<>(BenchmarkCatalog.books(pageSize), 0, pageSize, 1_000_000, 1_000_000 / pageSize);
+        body = JsonMapper.builder().build().writeValueAsBytes(page);
+
+        treeMapper = new ObjectMapper();
+        treeMapper.registerModule(new JavaTimeModule());
+        treeMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        bookJson = new BookJson();
+    }
+
+    @Benchmark
+    public com.model.PageResponse<com.model.Book> stringTreeThenConvert() throws IOException {
+        String json = new String(body, StandardCharsets.UTF_8);
+        JsonNode node = treeMapper.readTree(json);
+        com.model.PageResponse<com.model.Book> page = new com.model.PageResponse<>();
+        page.setPage(node.get("page").asInt());
+        page.setSize(node.get("size").asInt());
+        page.setTotalElements(node.get("totalElements").asLong());
+        page.setTotalPages(node.get("totalPages").asInt());
+        page.setContent(Arrays.asList(treeMapper.treeToValue(node.get("content"), com.model.Book[].class)));
+        return page;
+    }
+
+    @Benchmark
+    public com.model.PageResponse<com.model.Book> streamingTypedReader() throws IOException {
+        return bookJson.readPage(new ByteArrayInputStream(body));
+    }
+}
@@ -0,0 +1,111 @@
+package com.demo.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.demo.dto.BookView;
+import com.demo.dto.PageResponse;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.service.BookJson;
+
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+/**
+ * Compares the wire formats for a page of books: JSON, Smile (what the JavaFX client negotiates) and CBOR.
+ * {@code encode} is the backend writing a {@code PageResponse<BookView>}, {@code decode} the client reading
+ * it into its own model. The payload sizes, plain and gzip-compressed, are printed during setup.
+ * Run with {@code -prof gc} to compare allocation per page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WireFormatBenchmark {
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    @Param({"100", "1000"})
+    private int pageSize;
+
+    private ObjectMapper encoder;
+    private Decoder decoder;
+    private PageResponse<BookView> page;
+    private byte[] body;
+
+    private interface Decoder {
+        com.model.PageResponse<com.model.Book> decode(InputStream body) throws IOException;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        List<BookView> books = BenchmarkCatalog.books(pageSize).stream().map(BookView::of).toList();
+        page = new PageResponse<>(books, 0, pageSize, 1_000_000, 1_000_000 / pageSize);
+
+        switch (format) {
+            case "json" -> {
+                encoder = JsonMapper.builder().build();
+                decoder = new BookJson()::readPage;
+            }
+            case "smile" -> {
+                encoder = SmileMapper.builder().build();
+                decoder = BookJson.smile()::readPage;
+            }
+            case "cbor" -> {
+                encoder = CBORMapper.builder().build();
+                ObjectReader reader = new com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper()
+                        .registerModule(new JavaTimeModule())
+                        .readerFor(new TypeReference<com.model.PageResponse<com.model.Book>>() {});
+                decoder = reader::readValue;
+            }
+            default -> throw new IllegalArgumentException(format);
+        }
+        body = encoder.writeValueAsBytes(page);
+        System.out.printf("%n%s, %d books: %d bytes, %d gzip-compressed%n", format, pageSize, body.length, gzip(body));
+    }
+
+    private static int gzip(byte[] bytes) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.size();
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return encoder.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public com.model.PageResponse<com.model.Book> decode() throws IOException {
+        return decoder.decode(new ByteArrayInputStream(body));
+    }
+}
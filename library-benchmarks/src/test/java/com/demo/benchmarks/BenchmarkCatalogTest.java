@@ -0,0 +1,38 @@
+package com.demo.benchmarks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.demo.model.Book;
+import com.demo.service.BookService;
+
+class BenchmarkCatalogTest {
+
+    @Test
+    void seedsTheRowsWithIdsFromOne() {
+        // More than one seed batch
+        int rows = 10_050;
+        try (ConfigurableApplicationContext context = BenchmarkCatalog.start(rows)) {
+            assertThat(context.getEnvironment().getProperty("spring.datasource.url")).startsWith("jdbc:h2:mem:bench-");
+            BookService bookService = context.getBean(BookService.class);
+
+            // BookServiceBenchmark picks pages and ids at random within the row count
+            assertThat(bookService.getAllBooksPaginated(0, 20).getTotalElements()).isEqualTo(rows);
+            assertThat(bookService.getBook(1L).getTitle()).isEqualTo(BenchmarkCatalog.title(0));
+            assertThat(bookService.getBook((long) rows).getTitle()).isEqualTo(BenchmarkCatalog.title(rows - 1));
+        }
+    }
+
+    @Test
+    void buildsTheSameBooksItSeeds() {
+        List<Book> books = BenchmarkCatalog.books(3);
+
+        assertThat(books).extracting(Book::getId).containsExactly(1L, 2L, 3L);
+        assertThat(books.get(2).getTitle()).isEqualTo(BenchmarkCatalog.title(2));
+        assertThat(books.get(2).getIsbn()).isEqualTo("978-1000000002");
+    }
+}
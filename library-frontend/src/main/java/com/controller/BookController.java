@@ -1,23 +1,34 @@
 package com.controller;
 
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 import com.model.Book;
-import com.model.PageResponse;
+import com.model.BookChange;
+import com.model.BookSuggestion;
+import com.service.BookChangeFeed;
 import com.service.BookService;
+import com.service.WindowedBookList;
 import com.util.AlertUtil;
+import com.util.FxUtil;
 
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
-import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
-import javafx.scene.control.Button;
+import javafx.geometry.Side;
+import javafx.scene.control.ContextMenu;
 import javafx.scene.control.DatePicker;
 import javafx.scene.control.Label;
+import javafx.scene.control.MenuItem;
 import javafx.scene.control.SelectionMode;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
+import javafx.util.Duration;
 
 public class BookController {
 
@@ -35,18 +46,24 @@ public class BookController {
     // Search field
     @FXML private TextField searchField;
 
-    // Pagination controls
-    @FXML private Button prevBtn;
-    @FXML private Button nextBtn;
-    @FXML private Label pageLabel;
+    @FXML private Label countLabel;
 
     private final BookService service = new BookService();
 
-    // Pagination state
-    private int currentPage = 0;
-    private int totalPages = 1;
-    private static final int PAGE_SIZE = 10;
+    // The table scrolls through the whole result; rows are fetched in blocks as they are displayed
+    private static final int BLOCK_SIZE = 100;
+    private static final int MAX_LOADED_BLOCKS = 20;
     private String currentSearchQuery = null;
+    private WindowedBookList books;
+
+    // Type-ahead: searches once typing pauses, and suggests matching titles below the search field
+    private static final int SUGGESTION_LIMIT = 8;
+    private final PauseTransition typeAheadDelay = new PauseTransition(Duration.millis(250));
+    private final ContextMenu suggestionsMenu = new ContextMenu();
+    private CompletableFuture<List<BookSuggestion>> pendingSuggestions;
+
+    // Other users' changes are pushed by the server and applied to the displayed rows
+    private BookChangeFeed changeFeed;
 
     // ================= INITIALIZE =================
 
@@ -56,7 +73,8 @@ public class BookController {
         table.getSelectionModel().setSelectionMode(SelectionMode.SINGLE);
 
         table.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
-            if (newVal != null) {
+            // A pushed update of the selected book replaces the row, but must not overwrite edits in progress
+            if (newVal != null && (oldVal == null || !Objects.equals(oldVal.getId(), newVal.getId()))) {
                 titleField.setText(newVal.getTitle());
                 authorField.setText(newVal.getAuthor());
                 isbnField.setText(newVal.getIsbn());
@@ -64,51 +82,83 @@ public class BookController {
             }
         });
 
-        titleCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getTitle()));
-        authorCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getAuthor()));
-        isbnCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getIsbn()));
-        dateCol.setCellValueFactory(data -> new SimpleObjectProperty<>(data.getValue().getPublishedDate()));
+        // Rows that are not loaded yet are null
+        titleCol.setCellValueFactory(data ->
+                new SimpleStringProperty(data.getValue() == null ? "Loading..." : data.getValue().getTitle()));
+        authorCol.setCellValueFactory(data ->
+                new SimpleStringProperty(data.getValue() == null ? null : data.getValue().getAuthor()));
+        isbnCol.setCellValueFactory(data ->
+                new SimpleStringProperty(data.getValue() == null ? null : data.getValue().getIsbn()));
+        dateCol.setCellValueFactory(data ->
+                new SimpleObjectProperty<>(data.getValue() == null ? null : data.getValue().getPublishedDate()));
+
+        typeAheadDelay.setOnFinished(event -> typeAhead());
+        searchField.textProperty().addListener((obs, oldVal, newVal) -> typeAheadDelay.playFromStart());
+
+        // Subscribe before the first load, so that no change falls between the two
+        changeFeed = service.subscribeToChanges(new BookChangeFeed.Listener() {
+            @Override
+            public void changed(BookChange change) {
+                Platform.runLater(() -> books.apply(change));
+            }
+
+            @Override
+            public void reset() {
+                Platform.runLater(BookController.this::reloadBooks);
+            }
+        });
 
         loadBooks();
         clearForm();
+
+        // The listing switches to the local copy of the catalog once it is loaded, and is reloaded once
+        // the copy has caught up with the server; until then it is read from the server
+        service.loadReplica().thenAccept(complete -> {
+            if (complete) {
+                Platform.runLater(this::reloadBooks);
+            }
+        });
+        service.sync().thenRun(() -> Platform.runLater(this::reloadBooks));
     }
 
 
     // ================= LOAD =================
 
-    @FXML
     private void loadBooks() {
-        try {
-            PageResponse<Book> response;
-            
-            if (currentSearchQuery != null && !currentSearchQuery.trim().isEmpty()) {
-                response = service.searchBooks(currentSearchQuery, currentPage, PAGE_SIZE);
-            } else {
-                response = service.getAllBooksPaginated(currentPage, PAGE_SIZE);
-            }
-            
-            table.setItems(FXCollections.observableArrayList(response.getContent()));
-            totalPages = response.getTotalPages();
-            
-            // Handle case when there are no results
-            if (totalPages == 0) {
-                totalPages = 1;
-            }
-            
-            updatePaginationControls();
-        } catch (Exception e) {
-            AlertUtil.error("Error", e.getMessage());
+        if (books != null) {
+            books.close();
         }
+        String query = currentSearchQuery != null && !currentSearchQuery.trim().isEmpty() ? currentSearchQuery : null;
+        books = new WindowedBookList(service, query, BLOCK_SIZE, MAX_LOADED_BLOCKS);
+        books.totalElementsProperty().addListener((obs, oldVal, newVal) -> updateCount());
+        table.setItems(books);
+        updateCount();
+    }
+
+    // Keeps the result and scroll position, but fetches the displayed rows again
+    @FXML
+    private void reloadBooks() {
+        service.refresh();
+        books.reload();
+    }
+
+    // Own changes come back through the change feed; without it, the displayed rows are fetched again
+    private void catalogChanged() {
+        if (!changeFeed.isConnected()) {
+            reloadBooks();
+        }
+        clearForm();
     }
 
     // ================= SEARCH =================
 
     @FXML
     private void searchBooks() {
+        typeAheadDelay.stop();
+        suggestionsMenu.hide();
         String query = searchField.getText();
         if (query != null && !query.trim().isEmpty()) {
             currentSearchQuery = query.trim();
-            currentPage = 0; // Reset to first page
             loadBooks();
         }
     }
@@ -116,100 +166,108 @@ public class BookController {
     @FXML
     private void clearSearch() {
         searchField.clear();
+        typeAheadDelay.stop();
+        suggestionsMenu.hide();
         currentSearchQuery = null;
-        currentPage = 0;
         loadBooks();
     }
 
-    // ================= PAGINATION =================
-
-    @FXML
-    private void previousPage() {
-        if (currentPage > 0) {
-            currentPage--;
-            loadBooks();
+    private void typeAhead() {
+        String text = searchField.getText() == null ? "" : searchField.getText().trim();
+        String query = text.isEmpty() ? null : text;
+        if (Objects.equals(query, currentSearchQuery)) {
+            return;
         }
+        currentSearchQuery = query;
+        loadBooks();
+        showSuggestions(query);
     }
 
-    @FXML
-    private void nextPage() {
-        if (currentPage < totalPages - 1) {
-            currentPage++;
-            loadBooks();
+    private void showSuggestions(String query) {
+        if (pendingSuggestions != null) {
+            pendingSuggestions.cancel(true);
+        }
+        if (query == null) {
+            suggestionsMenu.hide();
+            return;
         }
+
+        CompletableFuture<List<BookSuggestion>> suggestions = service.suggestBooks(query, SUGGESTION_LIMIT);
+        pendingSuggestions = suggestions;
+        FxUtil.onFxThread(suggestions, result -> {
+            if (suggestions != pendingSuggestions) {
+                return;
+            }
+            pendingSuggestions = null;
+
+            suggestionsMenu.getItems().clear();
+            for (BookSuggestion suggestion : result) {
+                MenuItem item = new MenuItem(suggestion.getTitle());
+                item.setOnAction(event -> searchField.setText(suggestion.getTitle()));
+                suggestionsMenu.getItems().add(item);
+            }
+            if (result.isEmpty() || !searchField.isFocused()) {
+                suggestionsMenu.hide();
+            } else if (!suggestionsMenu.isShowing()) {
+                suggestionsMenu.show(searchField, Side.BOTTOM, 0, 0);
+            }
+        });
     }
 
-    private void updatePaginationControls() {
-        pageLabel.setText("Page " + (currentPage + 1) + " of " + totalPages);
-        prevBtn.setDisable(currentPage <= 0);
-        nextBtn.setDisable(currentPage >= totalPages - 1);
+    // ================= COUNT =================
+
+    private void updateCount() {
+        long total = books.totalElementsProperty().get();
+        countLabel.setText(total == 1 ? "1 book" : total + " books");
     }
 
     // ================= ADD =================
 
     @FXML
     private void addBook() {
-        try {
-            Book book = new Book();
-            book.setTitle(titleField.getText());
-            book.setAuthor(authorField.getText());
-            book.setIsbn(isbnField.getText());
-            book.setPublishedDate(publishedDatePicker.getValue());
-
-            service.addBook(book);
-            loadBooks();
-            clearForm();
+        Book book = new Book();
+        book.setTitle(titleField.getText());
+        book.setAuthor(authorField.getText());
+        book.setIsbn(isbnField.getText());
+        book.setPublishedDate(publishedDatePicker.getValue());
 
-        } catch (Exception e) {
-            AlertUtil.error("Error", e.getMessage());
-        }
+        FxUtil.onFxThread(service.addBook(book), ignored -> catalogChanged());
     }
 
     // ================= UPDATE =================
 
     @FXML
     private void updateBook() {
-        try {
-            Book selected = table.getSelectionModel().getSelectedItem();
+        Book selected = table.getSelectionModel().getSelectedItem();
 
-            if (selected == null) {
-                AlertUtil.error("Error", "Select a book first");
-                return;
-            }
-
-            selected.setTitle(titleField.getText());
-            selected.setAuthor(authorField.getText());
-            selected.setIsbn(isbnField.getText());
-            selected.setPublishedDate(publishedDatePicker.getValue());
+        if (selected == null) {
+            AlertUtil.error("Error", "Select a book first");
+            return;
+        }
 
-            service.updateBook(selected);
-            loadBooks();
-            clearForm();
+        // Edit a copy: the selected row may be shared with the page cache
+        Book book = new Book();
+        book.setId(selected.getId());
+        book.setTitle(titleField.getText());
+        book.setAuthor(authorField.getText());
+        book.setIsbn(isbnField.getText());
+        book.setPublishedDate(publishedDatePicker.getValue());
 
-        } catch (Exception e) {
-            AlertUtil.error("Error", e.getMessage());
-        }
+        FxUtil.onFxThread(service.updateBook(selected, book), ignored -> catalogChanged());
     }
 
     // ================= DELETE =================
 
     @FXML
     private void deleteBook() {
-        try {
-            Book selected = table.getSelectionModel().getSelectedItem();
+        Book selected = table.getSelectionModel().getSelectedItem();
 
-            if (selected == null) {
-                AlertUtil.error("Error", "Select a book first");
-                return;
-            }
-
-            service.deleteBook(selected.getId());
-            loadBooks();
-            clearForm();
-
-        } catch (Exception e) {
-            AlertUtil.error("Error", e.getMessage());
+        if (selected == null) {
+            AlertUtil.error("Error", "Select a book first");
+            return;
         }
+
+        FxUtil.onFxThread(service.deleteBook(selected.getId()), ignored -> catalogChanged());
     }
 
     // ================= CLEAR =================
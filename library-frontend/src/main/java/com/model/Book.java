@@ -1,9 +1,11 @@
 package com.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import java.time.LocalDate;
 
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class Book {
 
     private Long id;
@@ -14,6 +16,9 @@ public class Book {
     @JsonFormat(pattern = "yyyy-MM-dd")
     private LocalDate publishedDate;
 
+    // Assigned by the server and incremented on every update
+    private Long version;
+
     public Book(String title, String author, String isbn) {
         this.title = title;
         this.author = author;
@@ -61,4 +66,12 @@ public class Book {
     public void setIsbn(String isbn) {
         this.isbn = isbn;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,64 @@
+package com.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * A change pushed by the backend: a book was added, updated or deleted.
+ * {@code book} is the book after the change, and null for a delete.
+ * {@code changeVersion} is the sync version from which on the change is reflected.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BookChange {
+
+    public static final String ADDED = "added";
+    public static final String UPDATED = "updated";
+    public static final String DELETED = "deleted";
+
+    private long sequence;
+    private String type;
+    private Long id;
+    private long changeVersion;
+    private Book book;
+
+    public BookChange() {}
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public long getChangeVersion() {
+        return changeVersion;
+    }
+
+    public void setChangeVersion(long changeVersion) {
+        this.changeVersion = changeVersion;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+
+    public void setBook(Book book) {
+        this.book = book;
+    }
+}
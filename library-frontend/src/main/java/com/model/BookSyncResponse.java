@@ -0,0 +1,71 @@
+package com.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * The books changed and the ids of the books deleted since a version, as sent by {@code /api/books/sync}.
+ * The local replica is stored in the same shape, holding every book as of {@code version}.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BookSyncResponse {
+
+    private String epoch;
+    private long version;
+    private boolean reset;
+    private boolean hasMore;
+    private List<Book> books = new ArrayList<>();
+    private List<Long> deleted = new ArrayList<>();
+
+    public BookSyncResponse() {}
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public void setEpoch(String epoch) {
+        this.epoch = epoch;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public boolean isReset() {
+        return reset;
+    }
+
+    public void setReset(boolean reset) {
+        this.reset = reset;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    public void setBooks(List<Book> books) {
+        this.books = books;
+    }
+
+    public List<Long> getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(List<Long> deleted) {
+        this.deleted = deleted;
+    }
+}
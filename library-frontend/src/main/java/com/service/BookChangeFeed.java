@@ -0,0 +1,182 @@
+package com.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import com.model.BookChange;
+
+/**
+ * Client of the backend's change feed ({@code /api/books/changes}, server-sent events). Reads the stream
+ * on its own daemon thread and reconnects after failures, resuming after the last event it received.
+ * Listener methods are called on that thread, in the order of the changes.
+ */
+public class BookChangeFeed {
+
+    /**
+     * Receives the changes of the feed.
+     */
+    public interface Listener {
+
+        void changed(BookChange change);
+
+        /**
+         * Changes were missed (the server restarted or the gap was too long): everything has to be reloaded.
+         */
+        void reset();
+
+        /**
+         * The feed connected or lost its connection; while it is down, changes are not received.
+         */
+        default void connected(boolean connected) {
+        }
+    }
+
+    private static final long MIN_RETRY_MILLIS = 1000;
+    private static final long MAX_RETRY_MILLIS = 30_000;
+
+    private final HttpClient client;
+    private final String url;
+    private final BookJson json;
+    private final Listener listener;
+    private final Thread thread;
+
+    private volatile boolean closed;
+    private volatile boolean connected;
+    private volatile Stream<String> lines;
+    private String lastEventId;
+
+    BookChangeFeed(HttpClient client, String url, BookJson json, Listener listener) {
+        this.client = client;
+        this.url = url;
+        this.json = json;
+        this.listener = listener;
+        this.thread = new Thread(this::run, "book-changes");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public void close() {
+        closed = true;
+        Stream<String> current = lines;
+        if (current != null) {
+            // Aborts the blocking read of the stream
+            current.close();
+        }
+        thread.interrupt();
+    }
+
+    private void run() {
+        long retryMillis = MIN_RETRY_MILLIS;
+        while (!closed) {
+            try {
+                HttpRequest.Builder request = HttpRequest.newBuilder()
+                        .uri(URI.create(url))
+                        .header("Accept", "text/event-stream");
+                if (lastEventId != null) {
+                    request.header("Last-Event-ID", lastEventId);
+                }
+                HttpResponse<Stream<String>> response =
+                        client.send(request.GET().build(), HttpResponse.BodyHandlers.ofLines());
+                if (response.statusCode() == 200) {
+                    lines = response.body();
+                    setConnected(true);
+                    retryMillis = MIN_RETRY_MILLIS;
+                    try (Stream<String> body = lines) {
+                        read(body.iterator());
+                    }
+                } else {
+                    response.body().close();
+                }
+            } catch (IOException | UncheckedIOException e) {
+                // Reconnect below
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lines = null;
+                setConnected(false);
+            }
+            if (closed) {
+                return;
+            }
+            try {
+                Thread.sleep(retryMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            retryMillis = Math.min(retryMillis * 2, MAX_RETRY_MILLIS);
+        }
+    }
+
+    // Event stream format: "field:value" lines, each event ended by an empty line
+    private void read(Iterator<String> lines) throws IOException {
+        String id = null;
+        String event = "message";
+        StringBuilder data = new StringBuilder();
+        while (lines.hasNext()) {
+            String line = lines.next();
+            if (line.isEmpty()) {
+                dispatch(event, data.toString());
+                if (id != null) {
+                    lastEventId = id;
+                }
+                id = null;
+                event = "message";
+                data.setLength(0);
+                continue;
+            }
+            if (line.startsWith(":")) {
+                continue;
+            }
+            int colon = line.indexOf(':');
+            String field = colon < 0 ? line : line.substring(0, colon);
+            String value = colon < 0 ? "" : line.substring(colon + 1);
+            if (value.startsWith(" ")) {
+                value = value.substring(1);
+            }
+            switch (field) {
+                case "id":
+                    id = value;
+                    break;
+                case "event":
+                    event = value;
+                    break;
+                case "data":
+                    if (data.length() > 0) {
+                        data.append('\n');
+                    }
+                    data.append(value);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void dispatch(String event, String data) throws IOException {
+        if (event.equals("change")) {
+            listener.changed(json.readChange(data));
+        } else if (event.equals("reset")) {
+            listener.reset();
+        }
+    }
+
+    private void setConnected(boolean connected) {
+        if (this.connected != connected) {
+            this.connected = connected;
+            listener.connected(connected);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Objects;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.model.Book;
+import com.model.BookChange;
+import com.model.BookSuggestion;
+import com.model.BookSyncResponse;
+import com.model.PageResponse;
+
+/**
+ * JSON mapping for the book API. Responses are decoded straight from the response stream into
+ * their target types, without first buffering the body as a String or building a JsonNode tree.
+ * {@link #smile()} maps the same types to Smile, the binary encoding of JSON that the backend also
+ * negotiates. Readers and writers are immutable, so one instance can be shared between threads.
+ */
+public class BookJson {
+
+    public static final String SMILE_CONTENT_TYPE = "application/x-jackson-smile";
+
+    private static final String[] EDITABLE_FIELDS = {"title", "author", "isbn", "publishedDate"};
+
+    private final ObjectMapper mapper;
+    private final ObjectReader pageReader;
+    private final ObjectReader suggestionsReader;
+    private final ObjectReader changeReader;
+    private final ObjectReader syncReader;
+    private final ObjectWriter bookWriter;
+    private final ObjectWriter syncWriter;
+
+    public BookJson() {
+        this(new ObjectMapper());
+    }
+
+    /**
+     * Smile writes each field name once per document and refers back to it afterwards, and numbers in binary,
+     * so pages are smaller and quicker to decode than JSON.
+     */
+    public static BookJson smile() {
+        return new BookJson(new SmileMapper());
+    }
+
+    private BookJson(ObjectMapper mapper) {
+        this.mapper = mapper;
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        pageReader = mapper.readerFor(new TypeReference<PageResponse<Book>>() {});
+        suggestionsReader = mapper.readerFor(new TypeReference<List<BookSuggestion>>() {});
+        changeReader = mapper.readerFor(BookChange.class);
+        syncReader = mapper.readerFor(BookSyncResponse.class);
+        bookWriter = mapper.writerFor(Book.class);
+        syncWriter = mapper.writerFor(BookSyncResponse.class);
+    }
+
+    public PageResponse<Book> readPage(InputStream body) throws IOException {
+        return pageReader.readValue(body);
+    }
+
+    public List<BookSuggestion> readSuggestions(InputStream body) throws IOException {
+        return suggestionsReader.readValue(body);
+    }
+
+    public BookChange readChange(String event) throws IOException {
+        return changeReader.readValue(event);
+    }
+
+    public BookSyncResponse readSync(InputStream body) throws IOException {
+        return syncReader.readValue(body);
+    }
+
+    public void writeSync(OutputStream out, BookSyncResponse sync) throws IOException {
+        syncWriter.writeValue(out, sync);
+    }
+
+    public byte[] writeBook(Book book) throws IOException {
+        return bookWriter.writeValueAsBytes(book);
+    }
+
+    /**
+     * Writes a partial update holding the version of {@code original} and the fields {@code edited} changed.
+     */
+    public byte[] writePatch(Book original, Book edited) throws IOException {
+        ObjectNode before = mapper.valueToTree(original);
+        ObjectNode after = mapper.valueToTree(edited);
+        ObjectNode patch = mapper.createObjectNode();
+        patch.put("version", original.getVersion());
+        for (String field : EDITABLE_FIELDS) {
+            if (!Objects.equals(before.get(field), after.get(field))) {
+                patch.set(field, after.get(field));
+            }
+        }
+        return mapper.writeValueAsBytes(patch);
+    }
+}
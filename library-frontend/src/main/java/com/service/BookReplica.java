@@ -0,0 +1,234 @@
+package com.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import com.model.Book;
+import com.model.BookChange;
+import com.model.BookSyncResponse;
+import com.model.PageResponse;
+
+/**
+ * Local copy of the whole catalog, stored in a file between sessions and brought up to date with the
+ * changes the server reports since its version ({@code /api/books/sync}) and those pushed by the change feed.
+ * Once complete, the unfiltered listing is paged from memory, in the server's id order. Thread-safe.
+ * <p>
+ * The copy is held in memory, so it is only kept for a catalog of at most {@code maxBooks}. A larger one
+ * makes the replica give up, and the listing stays paged from the server with a bounded window of rows.
+ */
+public class BookReplica {
+
+    private final Path file;
+    private final BookJson json;
+    private final int maxBooks;
+    private final TreeMap<Long, Book> books = new TreeMap<>();
+    // Books deleted through the change feed, which a sync read before the delete must not bring back,
+    // with the change version of the delete: a sync that has reached it reflects the delete itself
+    private final Map<Long, Long> deleted = new HashMap<>();
+    private List<Book> ordered;
+    private String epoch;
+    private long version;
+    private boolean complete;
+    private boolean loaded;
+    private boolean tooLarge;
+
+    public BookReplica(Path file, BookJson json, int maxBooks) {
+        this.file = file;
+        this.json = json;
+        this.maxBooks = maxBooks;
+    }
+
+    /**
+     * Reads the copy saved by an earlier session, once. A missing or unreadable file leaves the replica
+     * empty, to be filled by the next sync. Returns whether the replica holds a complete catalog.
+     */
+    public synchronized boolean load() {
+        if (loaded) {
+            return complete;
+        }
+        loaded = true;
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            BookSyncResponse saved = json.readSync(in);
+            // The feed may have delivered changes before the file was read; those are newer than the file
+            for (Book book : saved.getBooks()) {
+                if (!deleted.containsKey(book.getId())) {
+                    put(book);
+                }
+            }
+            epoch = saved.getEpoch();
+            version = saved.getVersion();
+            deleted.values().removeIf(changeVersion -> changeVersion <= version);
+            complete = true;
+            ordered = null;
+            checkSize();
+        } catch (IOException | RuntimeException e) {
+            books.clear();
+        }
+        return complete;
+    }
+
+    /**
+     * Writes the replica to its file, replacing the previous copy only once the new one is fully written.
+     * A replica that gave up on a catalog too large removes the file instead.
+     */
+    public synchronized void save() throws IOException {
+        if (tooLarge) {
+            Files.deleteIfExists(file);
+            return;
+        }
+        if (!complete) {
+            return;
+        }
+        BookSyncResponse snapshot = new BookSyncResponse();
+        snapshot.setEpoch(epoch);
+        snapshot.setVersion(version);
+        snapshot.setBooks(new ArrayList<>(books.values()));
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            json.writeSync(out, snapshot);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Whether the catalog turned out larger than {@code maxBooks}; the replica then stays empty.
+     */
+    public synchronized boolean isTooLarge() {
+        return tooLarge;
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    public synchronized String getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Applies one response of a sync. The replica is complete again once a response has no more to follow.
+     */
+    public synchronized void apply(BookSyncResponse sync) {
+        if (tooLarge) {
+            return;
+        }
+        if (sync.isReset()) {
+            books.clear();
+            complete = false;
+            if (!Objects.equals(epoch, sync.getEpoch())) {
+                // Another database, whose ids mean other books
+                deleted.clear();
+            }
+        }
+        for (Book book : sync.getBooks()) {
+            if (!deleted.containsKey(book.getId())) {
+                put(book);
+            }
+        }
+        for (Long id : sync.getDeleted()) {
+            books.remove(id);
+        }
+        epoch = sync.getEpoch();
+        version = sync.getVersion();
+        deleted.values().removeIf(changeVersion -> changeVersion <= version);
+        if (!sync.isHasMore()) {
+            complete = true;
+        }
+        ordered = null;
+        checkSize();
+    }
+
+    private void checkSize() {
+        if (books.size() > maxBooks) {
+            tooLarge = true;
+            complete = false;
+            books.clear();
+            deleted.clear();
+            ordered = null;
+        }
+    }
+
+    /**
+     * Applies a change pushed by the server. The version is left as it is: the next sync fetches the
+     * change again, and finds it already applied.
+     */
+    public synchronized void apply(BookChange change) {
+        if (tooLarge) {
+            return;
+        }
+        switch (change.getType()) {
+            case BookChange.ADDED:
+            case BookChange.UPDATED:
+                if (!deleted.containsKey(change.getId())) {
+                    put(change.getBook());
+                }
+                break;
+            case BookChange.DELETED:
+                // Already past it, a sync cannot bring the book back
+                if (change.getChangeVersion() > version) {
+                    deleted.put(change.getId(), change.getChangeVersion());
+                }
+                books.remove(change.getId());
+                break;
+            default:
+                return;
+        }
+        ordered = null;
+    }
+
+    // A sync may have read a book before an update the feed already delivered: keep the newer one
+    private void put(Book book) {
+        Book current = books.get(book.getId());
+        if (current == null || current.getVersion() == null || book.getVersion() == null
+                || book.getVersion() >= current.getVersion()) {
+            books.put(book.getId(), book);
+        }
+    }
+
+    public synchronized PageResponse<Book> page(int page, int size) {
+        if (ordered == null) {
+            ordered = new ArrayList<>(books.values());
+        }
+        return page(ordered, page, size);
+    }
+
+    /**
+     * Searches the replica with the client-side search rules; results are in id order rather than ranked.
+     */
+    public synchronized PageResponse<Book> search(String query, int page, int size) {
+        return page(LocalSearch.filter(new ArrayList<>(books.values()), query), page, size);
+    }
+
+    private static PageResponse<Book> page(List<Book> books, int page, int size) {
+        int from = (int) Math.min((long) page * size, books.size());
+        int to = Math.min(from + size, books.size());
+        PageResponse<Book> response = new PageResponse<>();
+        response.setContent(new ArrayList<>(books.subList(from, to)));
+        response.setPage(page);
+        response.setSize(size);
+        response.setTotalElements(books.size());
+        response.setTotalPages((books.size() + size - 1) / size);
+        return response;
+    }
+}
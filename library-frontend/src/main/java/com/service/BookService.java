@@ -1,148 +1,462 @@
 package com.service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.model.Book;
+import com.model.BookChange;
+import com.model.BookSuggestion;
+import com.model.BookSyncResponse;
 import com.model.PageResponse;
 
 
+/**
+ * Non-blocking client for the book API. Every call returns immediately with a CompletableFuture
+ * that completes on the shared client executor, never on the JavaFX Application Thread.
+ * Cancelling a returned future also aborts the underlying HTTP exchange.
+ * Responses are requested gzip-compressed and preferably in Smile (binary JSON), falling back to JSON
+ * for a server that does not offer it ({@code -Dlibrary.wire-format=json} only asks for JSON).
+ * Cached pages are revalidated with If-None-Match.
+ * While the change feed is connected, cached pages are kept up to date from it.
+ * The whole catalog is also kept in a local {@link BookReplica}, unless it holds more than
+ * {@code -Dlibrary.replica.max-books}: once it is loaded or synced, the unfiltered listing is served from it,
+ * and searches fall back to it while the server cannot be reached.
+ */
 public class BookService {
     private static final String BASE_URL = "http://localhost:8080/api/books";
-    private final HttpClient client = HttpClient.newHttpClient();
-    private final ObjectMapper mapper;
+    private static final int MAX_CACHED_PAGES = 50;
+    private static final long MAX_CACHED_BYTES = 8L * 1024 * 1024;
+    private static final long CACHED_PAGE_MAX_AGE = TimeUnit.SECONDS.toNanos(30);
+    private static final int SYNC_LIMIT = 5000;
+    // About 40 MB of books; a larger catalog is paged from the server instead of kept in a replica
+    private static final int MAX_REPLICA_BOOKS = Integer.getInteger("library.replica.max-books", 100_000);
+    private static final String ACCEPT = "json".equals(System.getProperty("library.wire-format"))
+            ? "application/json"
+            : BookJson.SMILE_CONTENT_TYPE + ", application/json;q=0.9";
+
+    // Shared by every BookService so that the whole UI uses one small, daemon pool
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(4, new DaemonThreadFactory());
+
+    private final String baseUrl;
+    private final HttpClient client = HttpClient.newBuilder().executor(EXECUTOR).build();
+    private final BookJson json = new BookJson();
+    private final BookJson smile = BookJson.smile();
+    private final PageCache pageCache = new PageCache(MAX_CACHED_PAGES, MAX_CACHED_BYTES, CACHED_PAGE_MAX_AGE);
+    private final Map<PageCache.Key, CompletableFuture<PageResponse<Book>>> inFlight = new ConcurrentHashMap<>();
+    private volatile BookChangeFeed changeFeed;
+    private final BookReplica replica;
+    // Replica loads and syncs run one after the other; guarded by this
+    private CompletableFuture<Void> replicaTasks = CompletableFuture.completedFuture(null);
 
     public BookService() {
-        mapper = new ObjectMapper();
-        mapper.registerModule(new JavaTimeModule());
-        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this(Paths.get(System.getProperty("library.replica",
+                Paths.get(System.getProperty("user.home"), ".library", "books.smile").toString())));
     }
 
-    public List<Book> getAllBooks() throws Exception {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(BASE_URL))
-                .GET()
-                .build();
+    /**
+     * @param replicaFile where the local copy of the catalog is kept between sessions
+     */
+    public BookService(Path replicaFile) {
+        this(replicaFile, BASE_URL);
+    }
 
-        HttpResponse<String> response =
-                client.send(request, HttpResponse.BodyHandlers.ofString());
+    /**
+     * @param baseUrl the book API, {@code http://localhost:8080/api/books} by default
+     */
+    BookService(Path replicaFile, String baseUrl) {
+        this.baseUrl = baseUrl;
+        this.replica = new BookReplica(replicaFile, smile, MAX_REPLICA_BOOKS);
+    }
 
-        if (response.statusCode() != 200) {
-            throw new RuntimeException("Failed to fetch books");
-        }
+    public CompletableFuture<List<Book>> getAllBooks() {
+        HttpRequest request = get(baseUrl);
 
         // Parse as PageResponse and extract content
-        PageResponse<Book> pageResponse = parsePageResponse(response.body());
-        return pageResponse.getContent();
+        return send(request, 200, "Failed to fetch books", (codec, body) -> codec.readPage(body).getContent());
     }
 
-    public PageResponse<Book> getAllBooksPaginated(int page, int size) throws Exception {
-        String url = BASE_URL + "?page=" + page + "&size=" + size;
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .GET()
-                .build();
+    public CompletableFuture<PageResponse<Book>> getAllBooksPaginated(int page, int size) {
+        if (replica.isComplete()) {
+            return CompletableFuture.completedFuture(replica.page(page, size));
+        }
+        return fetchPage(null, page, size);
+    }
 
-        HttpResponse<String> response =
-                client.send(request, HttpResponse.BodyHandlers.ofString());
+    public CompletableFuture<PageResponse<Book>> searchBooks(String query, int page, int size) {
+        CompletableFuture<PageResponse<Book>> search = fetchPage(query, page, size);
+        CompletableFuture<PageResponse<Book>> result = search
+                .handle((response, error) -> {
+                    if (error != null && replica.isComplete()) {
+                        // Offline: the local copy answers, though not ranked like the server would
+                        return CompletableFuture.completedFuture(replica.search(query, page, size));
+                    }
+                    return error != null ? CompletableFuture.<PageResponse<Book>>failedFuture(error)
+                            : CompletableFuture.completedFuture(response);
+                })
+                .thenCompose(Function.identity());
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                search.cancel(true);
+            }
+        });
+        return result;
+    }
 
-        if (response.statusCode() != 200) {
-            throw new RuntimeException("Failed to fetch books");
+    /**
+     * Reads the local copy of the catalog saved by an earlier session, in the background. Completes with
+     * whether it holds a complete catalog, which the unfiltered listing is then served from.
+     */
+    public CompletableFuture<Boolean> loadReplica() {
+        return enqueue(() -> CompletableFuture.completedFuture(replica.load()));
+    }
+
+    /**
+     * Brings the local copy of the catalog up to date with the changes since its last sync, or downloads the
+     * whole catalog the first time, and saves it. Syncs requested while one is running follow it.
+     */
+    public CompletableFuture<Void> sync() {
+        return enqueue(() -> {
+            replica.load();
+            if (replica.isTooLarge()) {
+                return saveReplica();
+            }
+            return syncFrom(replica.getVersion(), replica.getEpoch());
+        });
+    }
+
+    private CompletableFuture<Void> syncFrom(long since, String epoch) {
+        String url = baseUrl + "/sync?since=" + since + "&limit=" + SYNC_LIMIT
+                + (epoch == null ? "" : "&epoch=" + URLEncoder.encode(epoch, StandardCharsets.UTF_8));
+        return send(get(url), 200, "Failed to sync books", BookJson::readSync).thenCompose(response -> {
+            replica.apply(response);
+            if (response.isHasMore() && !replica.isTooLarge()) {
+                return syncFrom(response.getVersion(), response.getEpoch());
+            }
+            return saveReplica();
+        });
+    }
+
+    private CompletableFuture<Void> saveReplica() {
+        try {
+            replica.save();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to save the local copy of the catalog", e);
         }
+        return CompletableFuture.completedFuture(null);
+    }
 
-        return parsePageResponse(response.body());
+    private synchronized <T> CompletableFuture<T> enqueue(Supplier<CompletableFuture<T>> task) {
+        CompletableFuture<T> next = replicaTasks
+                .handle((previous, error) -> null)
+                .thenComposeAsync(previous -> task.get(), EXECUTOR);
+        replicaTasks = next.handle((result, error) -> null);
+        return next;
     }
 
-    public PageResponse<Book> searchBooks(String query, int page, int size) throws Exception {
-        String encodedQuery = URLEncoder.encode(query, StandardCharsets.UTF_8);
-        String url = BASE_URL + "/search?query=" + encodedQuery + "&page=" + page + "&size=" + size;
-        
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .GET()
-                .build();
+    /**
+     * Makes every cached page be checked with the server (cheaply, by ETag) before it is shown again.
+     */
+    public void refresh() {
+        pageCache.invalidateAll();
+    }
 
-        HttpResponse<String> response =
-                client.send(request, HttpResponse.BodyHandlers.ofString());
+    /**
+     * Starts following the server's change feed. Each change is applied to the cached pages before it is
+     * passed on to {@code listener}, on the feed's thread.
+     */
+    public BookChangeFeed subscribeToChanges(BookChangeFeed.Listener listener) {
+        BookChangeFeed feed = new BookChangeFeed(client, baseUrl + "/changes", json, new BookChangeFeed.Listener() {
+            @Override
+            public void changed(BookChange change) {
+                replica.apply(change);
+                pageCache.apply(change);
+                listener.changed(change);
+            }
 
-        if (response.statusCode() != 200) {
-            throw new RuntimeException("Failed to search books");
-        }
+            // Changes were missed: the replica catches up before the listener reloads
+            @Override
+            public void reset() {
+                pageCache.invalidateAll();
+                sync().whenComplete((synced, error) -> listener.reset());
+            }
 
-        return parsePageResponse(response.body());
+            @Override
+            public void connected(boolean connected) {
+                listener.connected(connected);
+            }
+        });
+        changeFeed = feed;
+        feed.start();
+        return feed;
     }
 
-    private PageResponse<Book> parsePageResponse(String json) throws Exception {
-        // Parse the JSON into a generic map first, then extract Book list
-        var node = mapper.readTree(json);
-        PageResponse<Book> pageResponse = new PageResponse<>();
-        pageResponse.setPage(node.get("page").asInt());
-        pageResponse.setSize(node.get("size").asInt());
-        pageResponse.setTotalElements(node.get("totalElements").asLong());
-        pageResponse.setTotalPages(node.get("totalPages").asInt());
-        
-        List<Book> books = Arrays.asList(
-                mapper.treeToValue(node.get("content"), Book[].class));
-        pageResponse.setContent(books);
-        
-        return pageResponse;
+    /**
+     * Loads a page into the cache in the background, unless it is already cached or being fetched.
+     * A {@code null} query prefetches from the unfiltered listing.
+     */
+    public void prefetch(String query, int page, int size) {
+        PageCache.Key key = new PageCache.Key(query, page, size);
+        if (page < 0 || (query == null && replica.isComplete()) || pageCache.get(key) != null || inFlight.containsKey(key)) {
+            return;
+        }
+        fetchPage(query, page, size);
     }
 
-    public void addBook(Book book) throws Exception {
-        String json = mapper.writeValueAsString(book);
+    private CompletableFuture<PageResponse<Book>> fetchPage(String query, int page, int size) {
+        PageCache.Key key = new PageCache.Key(query, page, size);
+        PageResponse<Book> cached = pageCache.get(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        if (query != null) {
+            PageResponse<Book> narrowed = narrowLocally(query, page, size);
+            if (narrowed != null) {
+                pageCache.put(key, narrowed, null, pageCache.generation());
+                return CompletableFuture.completedFuture(narrowed);
+            }
+        }
+        CompletableFuture<PageResponse<Book>> running = inFlight.get(key);
+        if (running != null) {
+            // Hand out a dependent future, so that cancelling it leaves the shared request running
+            return running.thenApply(Function.identity());
+        }
+
+        String url;
+        String errorMessage;
+        if (query == null) {
+            url = baseUrl + "?page=" + page + "&size=" + size;
+            errorMessage = "Failed to fetch books";
+        } else {
+            String encodedQuery = URLEncoder.encode(query, StandardCharsets.UTF_8);
+            url = baseUrl + "/search?query=" + encodedQuery + "&page=" + page + "&size=" + size;
+            errorMessage = "Failed to search books";
+        }
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(BASE_URL))
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(json))
-                .build();
+        // A stale copy is sent back as a conditional request, and reused if the server answers 304
+        long generation = pageCache.generation();
+        PageCache.Entry stale = pageCache.getForRevalidation(key);
+        HttpRequest.Builder builder = newRequest(url).GET();
+        if (stale != null && stale.getEtag() != null) {
+            builder.header("If-None-Match", stale.getEtag());
+        }
+        CompletableFuture<PageResponse<Book>> request = exchange(builder.build(), errorMessage, (response, body) -> {
+            if (response.statusCode() == 304 && stale != null) {
+                pageCache.revalidated(key, stale, generation);
+                return stale.getPage();
+            }
+            checkStatus(response, 200, errorMessage);
+            PageResponse<Book> fetched = codec(response).readPage(body);
+            pageCache.put(key, fetched, response.headers().firstValue("ETag").orElse(null), generation);
+            return fetched;
+        });
 
-        HttpResponse<String> response =
-                client.send(request, HttpResponse.BodyHandlers.ofString());
+        inFlight.put(key, request);
+        request.whenComplete((response, error) -> inFlight.remove(key, request));
+        return request;
+    }
 
-        if (response.statusCode() != 201 && response.statusCode() != 200) {
-            throw new RuntimeException("Failed to add book");
+    // While typing, "harr" -> "harry" can be answered from a complete result for "harr"
+    private PageResponse<Book> narrowLocally(String query, int page, int size) {
+        PageResponse<Book> broader = pageCache.findCompleteBroaderSearch(query, size);
+        if (broader == null) {
+            return null;
         }
+        List<Book> matches = LocalSearch.filter(broader.getContent(), query);
+        PageResponse<Book> narrowed = new PageResponse<>();
+        narrowed.setContent(page == 0 ? matches : List.of());
+        narrowed.setPage(page);
+        narrowed.setSize(size);
+        narrowed.setTotalElements(matches.size());
+        narrowed.setTotalPages(matches.isEmpty() ? 0 : 1);
+        return narrowed;
     }
 
-    public void updateBook(Book book) throws Exception {
-        String json = mapper.writeValueAsString(book);
+    public CompletableFuture<List<BookSuggestion>> suggestBooks(String query, int limit) {
+        String encodedQuery = URLEncoder.encode(query, StandardCharsets.UTF_8);
+        String url = baseUrl + "/suggest?query=" + encodedQuery + "&limit=" + limit;
+        return send(get(url), 200, "Failed to fetch suggestions", BookJson::readSuggestions);
+    }
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(BASE_URL + "/" + book.getId()))
+    private static HttpRequest get(String url) {
+        return newRequest(url).GET().build();
+    }
+
+    private static HttpRequest.Builder newRequest(String url) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .header("Accept", ACCEPT)
+                .header("Accept-Encoding", "gzip");
+    }
+
+    public CompletableFuture<Void> addBook(Book book) {
+        HttpRequest request = newRequest(baseUrl)
                 .header("Content-Type", "application/json")
-                .PUT(HttpRequest.BodyPublishers.ofString(json))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(toJson(book)))
                 .build();
 
-        HttpResponse<String> response =
-                client.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() != 200) {
-            throw new RuntimeException("Failed to update book");
+        return send(request, 201, "Failed to add book", (codec, body) -> null).thenCompose(this::catalogChanged);
+    }
+
+    /**
+     * Sends only the fields that differ between {@code original} and {@code edited}, together with the
+     * version of {@code original}; the update fails if someone else changed the book in the meantime.
+     */
+    public CompletableFuture<Void> updateBook(Book original, Book edited) {
+        byte[] patch;
+        try {
+            patch = json.writePatch(original, edited);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write book", e);
         }
+        HttpRequest request = newRequest(baseUrl + "/" + original.getId())
+                .header("Content-Type", "application/json")
+                .method("PATCH", HttpRequest.BodyPublishers.ofByteArray(patch))
+                .build();
+
+        String errorMessage = "Failed to update book";
+        return exchange(request, errorMessage, (response, body) -> {
+            if (response.statusCode() == 409) {
+                throw new RuntimeException("The book was changed by someone else. Refresh and try again.");
+            }
+            if (response.statusCode() == 404) {
+                throw new RuntimeException("The book no longer exists. Refresh and try again.");
+            }
+            checkStatus(response, 200, errorMessage);
+            return null;
+        }).thenCompose(this::catalogChanged);
     }
 
 
-    public void deleteBook(Long id) throws Exception {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(BASE_URL + "/" + id))
+    public CompletableFuture<Void> deleteBook(Long id) {
+        HttpRequest request = newRequest(baseUrl + "/" + id)
                 .DELETE()
                 .build();
 
-        HttpResponse<String> response =
-                client.send(request, HttpResponse.BodyHandlers.ofString());
+        return send(request, 204, "Failed to delete book", (codec, body) -> null).thenCompose(this::catalogChanged);
+    }
 
-        if (response.statusCode() != 200 && response.statusCode() != 204) {
-            throw new RuntimeException("Failed to delete book");
+    // The change feed, when connected, brings the cached pages and the replica up to date by itself.
+    // Otherwise the replica is synced before the write completes, so that a reload shows the change.
+    private CompletableFuture<Void> catalogChanged(Object written) {
+        BookChangeFeed feed = changeFeed;
+        if (feed != null && feed.isConnected()) {
+            return CompletableFuture.completedFuture(null);
         }
+        pageCache.invalidateAll();
+        return sync().exceptionally(error -> null);
+    }
+
+    private byte[] toJson(Book book) {
+        try {
+            return json.writeBook(book);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write book", e);
+        }
+    }
+
+    /**
+     * Decodes a response body while it is being received, with the codec of its content type.
+     */
+    private interface BodyReader<T> {
+        T read(BookJson codec, InputStream body) throws IOException;
+    }
+
+    /**
+     * Handles a response, given its status and headers and its (already decompressed) body.
+     */
+    private interface ResponseReader<T> {
+        T read(HttpResponse<InputStream> response, InputStream body) throws IOException;
     }
-}
 
+    // 200 is accepted for every call, in addition to the status the endpoint normally answers with
+    private <T> CompletableFuture<T> send(HttpRequest request, int expectedStatus, String errorMessage,
+                                          BodyReader<T> reader) {
+        return exchange(request, errorMessage, (response, body) -> {
+            if (response.statusCode() != 200) {
+                checkStatus(response, expectedStatus, errorMessage);
+            }
+            return reader.read(codec(response), body);
+        });
+    }
+
+    private BookJson codec(HttpResponse<?> response) {
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+        return contentType.startsWith(BookJson.SMILE_CONTENT_TYPE) ? smile : json;
+    }
+
+    private static void checkStatus(HttpResponse<?> response, int expectedStatus, String errorMessage) {
+        if (response.statusCode() != expectedStatus) {
+            throw new RuntimeException(errorMessage);
+        }
+    }
+
+    private <T> CompletableFuture<T> exchange(HttpRequest request, String errorMessage, ResponseReader<T> reader) {
+        CompletableFuture<HttpResponse<InputStream>> exchange =
+                client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+
+        // HttpClient aborts the exchange when any stage that depends on it is cancelled. The result is a plain
+        // future instead, so that cancelling one caller of a shared request leaves it running for the others.
+        CompletableFuture<T> result = new CompletableFuture<>();
+        exchange.thenApply(response -> {
+            // Closing the stream releases the connection, also when the body is not read to the end
+            try (InputStream body = decoded(response)) {
+                return reader.read(response, body);
+            } catch (IOException e) {
+                throw new UncheckedIOException(errorMessage, e);
+            }
+        }).whenComplete((body, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(body);
+            }
+        });
+        result.whenComplete((body, error) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    // HttpClient leaves Content-Encoding to the caller
+    private static InputStream decoded(HttpResponse<InputStream> response) throws IOException {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("");
+        if (encoding.equalsIgnoreCase("gzip")) {
+            return new GZIPInputStream(response.body());
+        }
+        return response.body();
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "book-service-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import com.model.Book;
+
+/**
+ * Client-side copy of the backend search rules: every query word must be the start of a word
+ * in the title, author or ISBN (ISBNs also match without their hyphens). Used to narrow an
+ * already complete result set while the user keeps typing, instead of asking the server again.
+ */
+public class LocalSearch {
+
+    public static List<Book> filter(List<Book> books, String query) {
+        List<String> tokens = tokenize(query);
+        List<Book> matches = new ArrayList<>();
+        for (Book book : books) {
+            if (matches(book, tokens)) {
+                matches.add(book);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Whether the results for {@code query} are a subset of the results for {@code broader},
+     * i.e. {@code query} only adds characters at the end.
+     */
+    public static boolean refines(String query, String broader) {
+        return query.toLowerCase(Locale.ROOT).startsWith(broader.toLowerCase(Locale.ROOT));
+    }
+
+    public static boolean matches(Book book, String query) {
+        return matches(book, tokenize(query));
+    }
+
+    private static boolean matches(Book book, List<String> tokens) {
+        List<String> terms = tokenize(book.getTitle());
+        terms.addAll(tokenize(book.getAuthor()));
+        List<String> isbnTerms = tokenize(book.getIsbn());
+        terms.addAll(isbnTerms);
+        terms.add(String.join("", isbnTerms));
+
+        for (String token : tokens) {
+            boolean found = false;
+            for (String term : terms) {
+                if (term.startsWith(token)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return new ArrayList<>();
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+}
@@ -0,0 +1,227 @@
+package com.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.model.Book;
+import com.model.BookChange;
+import com.model.PageResponse;
+
+/**
+ * LRU cache of fetched pages, keyed by (query, page, size), bounded both by number of pages
+ * and by an estimate of the memory the cached books take.
+ * A page is served as is for {@code maxAgeNanos} after it was fetched. After that, or once
+ * {@link #invalidateAll()} was called, it is only kept together with its ETag so that the next
+ * fetch can be a conditional request; responses requested before an invalidation are discarded
+ * instead of re-populating the cache with stale data.
+ */
+public class PageCache {
+
+    private final int maxPages;
+    private final long maxBytes;
+    private final long maxAgeNanos;
+    private final LinkedHashMap<Key, Entry> pages = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long generation;
+
+    public PageCache(int maxPages, long maxBytes, long maxAgeNanos) {
+        this.maxPages = maxPages;
+        this.maxBytes = maxBytes;
+        this.maxAgeNanos = maxAgeNanos;
+    }
+
+    /**
+     * Returns the page if it is cached and still fresh.
+     */
+    public synchronized PageResponse<Book> get(Key key) {
+        Entry entry = pages.get(key);
+        return entry != null && isFresh(entry) ? entry.page : null;
+    }
+
+    /**
+     * Returns the cached page whether or not it is fresh, for revalidation with its ETag.
+     */
+    public synchronized Entry getForRevalidation(Key key) {
+        return pages.get(key);
+    }
+
+    /**
+     * Finds a cached search whose query is a prefix of {@code query} and whose first page
+     * already holds every match, so that the results for {@code query} can be filtered from it.
+     */
+    public synchronized PageResponse<Book> findCompleteBroaderSearch(String query, int size) {
+        for (Map.Entry<Key, Entry> entry : pages.entrySet()) {
+            Key key = entry.getKey();
+            PageResponse<Book> page = entry.getValue().page;
+            if (key.query != null && isFresh(entry.getValue()) && key.page == 0 && key.size == size
+                    && LocalSearch.refines(query, key.query)
+                    && page.getContent() != null && page.getTotalElements() <= page.getContent().size()) {
+                return page;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The generation to pass to {@link #put} for a request that is about to start.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    public synchronized void put(Key key, PageResponse<Book> page, String etag, long requestGeneration) {
+        if (requestGeneration != generation) {
+            return;
+        }
+        Entry previous = pages.put(key, new Entry(page, etag, estimateBytes(page), System.nanoTime(), generation));
+        if (previous != null) {
+            bytes -= previous.bytes;
+        }
+        bytes += pages.get(key).bytes;
+
+        Iterator<Entry> eldest = pages.values().iterator();
+        while ((pages.size() > maxPages || bytes > maxBytes) && pages.size() > 1) {
+            bytes -= eldest.next().bytes;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Marks a cached page fresh again after the server answered 304 Not Modified.
+     */
+    public synchronized void revalidated(Key key, Entry entry, long requestGeneration) {
+        if (requestGeneration == generation && pages.get(key) == entry) {
+            pages.put(key, new Entry(entry.page, entry.etag, entry.bytes, System.nanoTime(), generation));
+        }
+    }
+
+    /**
+     * Makes every cached page stale, so that it is revalidated with the server before it is served again.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+    }
+
+    /**
+     * Applies a change pushed by the server. An updated book is replaced in every cached page that holds it,
+     * and pages of searches it no longer matches are dropped. Adds and deletes move rows from page to page,
+     * so they make every page stale instead.
+     */
+    public synchronized void apply(BookChange change) {
+        if (!BookChange.UPDATED.equals(change.getType()) || change.getBook() == null) {
+            generation++;
+            return;
+        }
+        Book book = change.getBook();
+        Iterator<Map.Entry<Key, Entry>> entries = pages.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Key, Entry> cached = entries.next();
+            Entry entry = cached.getValue();
+            int index = indexOf(entry.page, book.getId());
+            if (index < 0) {
+                continue;
+            }
+            String query = cached.getKey().query;
+            if (query != null && !LocalSearch.matches(book, query)) {
+                bytes -= entry.bytes;
+                entries.remove();
+                continue;
+            }
+            // Cached pages may be in use elsewhere, so the page is copied rather than changed.
+            // setValue leaves the LRU order as it is.
+            List<Book> content = new ArrayList<>(entry.page.getContent());
+            content.set(index, book);
+            PageResponse<Book> page = new PageResponse<>();
+            page.setContent(content);
+            page.setPage(entry.page.getPage());
+            page.setSize(entry.page.getSize());
+            page.setTotalElements(entry.page.getTotalElements());
+            page.setTotalPages(entry.page.getTotalPages());
+            cached.setValue(new Entry(page, entry.etag, entry.bytes, entry.fetchedAt, entry.generation));
+        }
+    }
+
+    private static int indexOf(PageResponse<Book> page, Long id) {
+        List<Book> content = page.getContent();
+        if (content != null) {
+            for (int i = 0; i < content.size(); i++) {
+                if (content.get(i) != null && Objects.equals(content.get(i).getId(), id)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private boolean isFresh(Entry entry) {
+        return entry.generation == generation && System.nanoTime() - entry.fetchedAt < maxAgeNanos;
+    }
+
+    // Rough heap footprint: object headers and fields plus two bytes per character
+    private static long estimateBytes(PageResponse<Book> page) {
+        long estimate = 64;
+        if (page.getContent() != null) {
+            for (Book book : page.getContent()) {
+                estimate += 96 + 2L * (length(book.getTitle()) + length(book.getAuthor()) + length(book.getIsbn()));
+            }
+        }
+        return estimate;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    public static final class Entry {
+        private final PageResponse<Book> page;
+        private final String etag;
+        private final long bytes;
+        private final long fetchedAt;
+        private final long generation;
+
+        Entry(PageResponse<Book> page, String etag, long bytes, long fetchedAt, long generation) {
+            this.page = page;
+            this.etag = etag;
+            this.bytes = bytes;
+            this.fetchedAt = fetchedAt;
+            this.generation = generation;
+        }
+
+        public PageResponse<Book> getPage() {
+            return page;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+
+    public static final class Key {
+        private final String query;
+        private final int page;
+        private final int size;
+
+        public Key(String query, int page, int size) {
+            this.query = query;
+            this.page = page;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return page == key.page && size == key.size && Objects.equals(query, key.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(query, page, size);
+        }
+    }
+}
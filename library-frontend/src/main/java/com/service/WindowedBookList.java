@@ -0,0 +1,288 @@
+package com.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import com.model.Book;
+import com.model.BookChange;
+import com.model.PageResponse;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.ReadOnlyLongWrapper;
+import javafx.collections.ObservableListBase;
+
+/**
+ * Sparse, read-only view over a whole listing or search result, for use as the items of a TableView.
+ * The list reports the full result size, but only holds the blocks of rows that were recently displayed:
+ * {@link #get(int)} answers {@code null} for a row that is not loaded yet and fetches its block in the
+ * background, and the least recently used blocks are dropped once more than {@code maxBlocks} are held.
+ * Changes pushed by the server are applied to the loaded rows with {@link #apply(BookChange)}.
+ * All methods must be called on the JavaFX Application Thread.
+ */
+public class WindowedBookList extends ObservableListBase<Book> {
+
+    // Loads are started for rows as they scroll past; older ones are cancelled when scrolling quickly
+    private static final int MAX_PENDING_LOADS = 4;
+
+    private final BookService service;
+    private final String query;
+    private final int blockSize;
+    private final int maxBlocks;
+    private final Executor fxThread;
+
+    private final Map<Integer, List<Book>> blocks;
+    private final Map<Integer, CompletableFuture<PageResponse<Book>>> pending = new LinkedHashMap<>();
+    private final ReadOnlyLongWrapper totalElements = new ReadOnlyLongWrapper(this, "totalElements");
+    private int size;
+    private int generation;
+
+    /**
+     * @param query search query, or {@code null} for the unfiltered listing
+     */
+    public WindowedBookList(BookService service, String query, int blockSize, int maxBlocks) {
+        this(service, query, blockSize, maxBlocks, Platform::runLater);
+    }
+
+    /**
+     * @param fxThread where loaded blocks are handed over, the JavaFX Application Thread but in tests
+     */
+    WindowedBookList(BookService service, String query, int blockSize, int maxBlocks, Executor fxThread) {
+        this.service = service;
+        this.query = query;
+        this.blockSize = blockSize;
+        this.maxBlocks = maxBlocks;
+        this.fxThread = fxThread;
+        this.blocks = new LinkedHashMap<>(16, 0.75f, true);
+        reload();
+    }
+
+    /**
+     * Drops every loaded block and reads the result size again, e.g. after the catalog changed.
+     * Rows are fetched again as they are displayed.
+     */
+    public void reload() {
+        close();
+        if (size > 0) {
+            // Have the displayed rows read again, which fetches their blocks
+            beginChange();
+            nextReplace(0, size, Collections.nCopies(size, null));
+            endChange();
+        }
+        load(0);
+    }
+
+    /**
+     * Cancels the loads in flight and drops every loaded block, once the list is no longer displayed.
+     */
+    public void close() {
+        generation++;
+        for (CompletableFuture<PageResponse<Book>> load : pending.values()) {
+            load.cancel(true);
+        }
+        pending.clear();
+        blocks.clear();
+    }
+
+    public ReadOnlyLongProperty totalElementsProperty() {
+        return totalElements.getReadOnlyProperty();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Book get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int block = index / blockSize;
+        List<Book> rows = blocks.get(block);
+
+        // Fetch the following block ahead of time once the last quarter of this one is displayed
+        if (index % blockSize >= blockSize * 3 / 4 && (block + 1) * blockSize < size) {
+            load(block + 1);
+        }
+        if (rows == null) {
+            load(block);
+            return null;
+        }
+        int offset = index % blockSize;
+        if (offset >= rows.size()) {
+            // The block lost rows to a delete before it and is short at the end: fetch it again
+            blocks.remove(block);
+            load(block);
+            return null;
+        }
+        return rows.get(offset);
+    }
+
+    /**
+     * Applies a change pushed by the server, without fetching the rows again: an updated book replaces its
+     * row, a deleted one is removed and a new one is appended. Search results are not re-ranked until the
+     * next {@link #reload()}.
+     */
+    public void apply(BookChange change) {
+        switch (change.getType()) {
+            case BookChange.UPDATED:
+                updated(change.getBook());
+                break;
+            case BookChange.DELETED:
+                deleted(change.getId());
+                break;
+            case BookChange.ADDED:
+                added(change.getBook());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void updated(Book book) {
+        int index = indexOf(book.getId());
+        if (index < 0) {
+            // Not loaded: it is fetched as it is now when displayed
+            return;
+        }
+        if (query != null && !LocalSearch.matches(book, query)) {
+            removeRow(index);
+            return;
+        }
+        Book previous = blocks.get(index / blockSize).set(index % blockSize, book);
+        beginChange();
+        nextSet(index, previous);
+        endChange();
+    }
+
+    private void deleted(Long id) {
+        int index = indexOf(id);
+        if (index >= 0) {
+            removeRow(index);
+            return;
+        }
+        if (query != null) {
+            // Not displayed, and maybe not part of the result at all
+            return;
+        }
+        // The listing is in id order: the loaded blocks after the deleted book moved up by one row
+        blocks.values().removeIf(rows -> !rows.isEmpty() && rows.get(0).getId() > id);
+        resize(size - 1);
+    }
+
+    private void added(Book book) {
+        if (query != null && !LocalSearch.matches(book, query)) {
+            return;
+        }
+        // New books have the highest id, so they are last in the listing
+        int index = size;
+        List<Book> rows = blocks.get(index / blockSize);
+        if (rows != null && rows.size() == index % blockSize) {
+            rows.add(book);
+        }
+        size++;
+        totalElements.set(totalElements.get() + 1);
+        beginChange();
+        nextAdd(index, index + 1);
+        endChange();
+    }
+
+    private void removeRow(int index) {
+        int block = index / blockSize;
+        Book removed = blocks.get(block).remove(index % blockSize);
+        // Each following loaded block passes its first row on to the block before it
+        while (blocks.containsKey(block + 1) && !blocks.get(block + 1).isEmpty()) {
+            blocks.get(block).add(blocks.get(block + 1).remove(0));
+            block++;
+        }
+        // Beyond the first block that is not loaded, the rows of every block are one off
+        int lastShifted = block;
+        blocks.keySet().removeIf(other -> other > lastShifted);
+
+        size--;
+        totalElements.set(totalElements.get() - 1);
+        beginChange();
+        nextRemove(index, removed);
+        endChange();
+    }
+
+    private int indexOf(Long id) {
+        for (Map.Entry<Integer, List<Book>> block : blocks.entrySet()) {
+            List<Book> rows = block.getValue();
+            for (int i = 0; i < rows.size(); i++) {
+                if (Objects.equals(rows.get(i).getId(), id)) {
+                    return block.getKey() * blockSize + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void resize(int newSize) {
+        beginChange();
+        nextReplace(0, newSize, Collections.nCopies(size, null));
+        size = newSize;
+        totalElements.set(newSize);
+        endChange();
+    }
+
+    private void load(int block) {
+        if (blocks.containsKey(block) || pending.containsKey(block)) {
+            return;
+        }
+        if (pending.size() >= MAX_PENDING_LOADS) {
+            Iterator<CompletableFuture<PageResponse<Book>>> oldest = pending.values().iterator();
+            oldest.next().cancel(true);
+            oldest.remove();
+        }
+
+        CompletableFuture<PageResponse<Book>> load = query == null
+                ? service.getAllBooksPaginated(block, blockSize)
+                : service.searchBooks(query, block, blockSize);
+        pending.put(block, load);
+
+        int loadGeneration = generation;
+        load.whenComplete((response, error) -> fxThread.execute(() -> {
+            if (loadGeneration != generation || pending.get(block) != load) {
+                return;
+            }
+            pending.remove(block);
+            // A failed block stays unloaded and is requested again when its rows are next displayed
+            if (error == null) {
+                loaded(block, response);
+            }
+        }));
+    }
+
+    private void loaded(int block, PageResponse<Book> response) {
+        // A copy, since pushed changes are applied to it
+        blocks.put(block, new ArrayList<>(response.getContent()));
+        Iterator<Integer> leastRecentlyUsed = blocks.keySet().iterator();
+        while (blocks.size() > maxBlocks) {
+            leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+        }
+
+        beginChange();
+        int newSize = (int) Math.min(response.getTotalElements(), Integer.MAX_VALUE);
+        if (newSize != size) {
+            // The result grew or shrank: every row may have moved
+            nextReplace(0, newSize, Collections.nCopies(size, null));
+            size = newSize;
+            totalElements.set(response.getTotalElements());
+        } else {
+            int from = Math.min(block * blockSize, size);
+            int to = Math.min(from + blockSize, size);
+            nextReplace(from, to, Collections.nCopies(to - from, null));
+        }
+        endChange();
+    }
+}
@@ -0,0 +1,36 @@
+package com.util;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+
+public class FxUtil {
+
+    /**
+     * Runs {@code onSuccess} on the JavaFX Application Thread once the future completes,
+     * or shows an error alert if it failed. Cancelled futures are ignored.
+     */
+    public static <T> void onFxThread(CompletableFuture<T> future, Consumer<T> onSuccess) {
+        future.whenComplete((result, error) -> Platform.runLater(() -> {
+            if (error == null) {
+                onSuccess.accept(result);
+                return;
+            }
+            Throwable cause = unwrap(error);
+            if (!(cause instanceof CancellationException)) {
+                AlertUtil.error("Error", cause.getMessage());
+            }
+        }));
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
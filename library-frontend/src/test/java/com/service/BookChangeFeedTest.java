@@ -0,0 +1,115 @@
+package com.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.model.BookChange;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class BookChangeFeedTest {
+
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+    private final List<String> lastEventIds = new CopyOnWriteArrayList<>();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private HttpServer server;
+    private BookChangeFeed feed;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/api/books/changes", exchange -> {
+            lastEventIds.add(String.valueOf(exchange.getRequestHeaders().getFirst("Last-Event-ID")));
+            try {
+                if (lastEventIds.size() == 1) {
+                    // A change with its data split over two lines, then the connection drops
+                    stream(exchange, ": keep-alive\n\n"
+                            + "id: run-7\nevent: change\n"
+                            + "data: {\"type\":\"deleted\",\ndata: \"id\":4,\"changeVersion\":9}\n\n");
+                } else {
+                    stream(exchange, "id: run-7\nevent: reset\ndata:\n\n");
+                    finished.await(5, TimeUnit.SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        finished.countDown();
+        if (feed != null) {
+            feed.close();
+        }
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void dispatchesEventsAndResumesAfterTheLastOneAfterReconnecting() throws Exception {
+        feed = new BookChangeFeed(HttpClient.newHttpClient(),
+                "http://localhost:" + server.getAddress().getPort() + "/api/books/changes", new BookJson(),
+                new BookChangeFeed.Listener() {
+                    @Override
+                    public void changed(BookChange change) {
+                        received.add(change.getType() + " " + change.getId() + " " + change.getChangeVersion());
+                    }
+
+                    @Override
+                    public void reset() {
+                        received.add("reset");
+                    }
+
+                    @Override
+                    public void connected(boolean connected) {
+                        received.add(connected ? "connected" : "disconnected");
+                    }
+                });
+
+        feed.start();
+
+        assertThat(next()).isEqualTo("connected");
+        assertThat(next()).isEqualTo("deleted 4 9");
+        assertThat(next()).isEqualTo("disconnected");
+        // Retried after a second
+        assertThat(next()).isEqualTo("connected");
+        assertThat(next()).isEqualTo("reset");
+        assertThat(lastEventIds).containsExactly("null", "run-7");
+        assertThat(feed.isConnected()).isTrue();
+    }
+
+    private String next() throws InterruptedException {
+        return received.poll(5, TimeUnit.SECONDS);
+    }
+
+    private static void stream(HttpExchange exchange, String events) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream body = exchange.getResponseBody();
+        body.write(events.getBytes(StandardCharsets.UTF_8));
+        body.flush();
+    }
+}
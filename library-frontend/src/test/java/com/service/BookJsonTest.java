@@ -0,0 +1,101 @@
+package com.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.model.Book;
+import com.model.BookChange;
+import com.model.BookSyncResponse;
+import com.model.PageResponse;
+
+class BookJsonTest {
+
+    private final BookJson json = new BookJson();
+
+    @Test
+    void readsAPageFromTheStreamIgnoringUnknownFields() throws Exception {
+        String body = "{\"content\":[{\"id\":1,\"title\":\"Dune\",\"author\":\"Frank Herbert\","
+                + "\"publishedDate\":\"1965-08-01\",\"version\":3,\"deleted\":false}],"
+                + "\"page\":0,\"size\":10,\"totalElements\":1,\"totalPages\":1,\"nextCursor\":1}";
+
+        PageResponse<Book> page = json.readPage(stream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(page.getTotalElements()).isEqualTo(1);
+        Book book = page.getContent().get(0);
+        assertThat(book.getTitle()).isEqualTo("Dune");
+        assertThat(book.getPublishedDate()).isEqualTo(LocalDate.of(1965, 8, 1));
+        assertThat(book.getVersion()).isEqualTo(3L);
+    }
+
+    @Test
+    void readsAPageEncodedInSmile() throws Exception {
+        ObjectMapper smile = new SmileMapper();
+        byte[] body = smile.writeValueAsBytes(new ObjectMapper().readTree(
+                "{\"content\":[{\"id\":7,\"title\":\"Emma\"}],\"totalElements\":1}"));
+
+        PageResponse<Book> page = BookJson.smile().readPage(stream(body));
+
+        assertThat(page.getContent()).extracting(Book::getId).containsExactly(7L);
+    }
+
+    @Test
+    void writesAPatchOfTheChangedFieldsAndTheVersion() throws Exception {
+        Book original = new Book("Dune", "Frank Herbert", "978-0-441-17271-9");
+        original.setId(1L);
+        original.setVersion(3L);
+        original.setPublishedDate(LocalDate.of(1965, 8, 1));
+        Book edited = new Book("Dune", "F. Herbert", null);
+        edited.setId(1L);
+        edited.setPublishedDate(LocalDate.of(1965, 8, 1));
+
+        JsonNode patch = new ObjectMapper().readTree(json.writePatch(original, edited));
+
+        assertThat(patch.size()).isEqualTo(3);
+        assertThat(patch.get("version").asLong()).isEqualTo(3);
+        assertThat(patch.get("author").asText()).isEqualTo("F. Herbert");
+        assertThat(patch.get("isbn").isNull()).isTrue();
+    }
+
+    @Test
+    void roundTripsASync() throws Exception {
+        BookSyncResponse sync = new BookSyncResponse();
+        sync.setEpoch("epoch");
+        sync.setVersion(12);
+        Book book = new Book("Dune", "Frank Herbert", null);
+        book.setId(1L);
+        sync.setBooks(List.of(book));
+        sync.setDeleted(List.of(2L));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        json.writeSync(out, sync);
+        BookSyncResponse read = json.readSync(stream(out.toByteArray()));
+
+        assertThat(read.getVersion()).isEqualTo(12);
+        assertThat(read.getBooks()).extracting(Book::getTitle).containsExactly("Dune");
+        assertThat(read.getDeleted()).containsExactly(2L);
+    }
+
+    @Test
+    void readsAChangeEvent() throws Exception {
+        BookChange change = json.readChange(
+                "{\"type\":\"deleted\",\"id\":4,\"changeVersion\":20,\"book\":null}");
+
+        assertThat(change.getType()).isEqualTo(BookChange.DELETED);
+        assertThat(change.getId()).isEqualTo(4L);
+        assertThat(change.getChangeVersion()).isEqualTo(20);
+    }
+
+    private static ByteArrayInputStream stream(byte[] bytes) {
+        return new ByteArrayInputStream(bytes);
+    }
+}
@@ -0,0 +1,179 @@
+package com.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.model.Book;
+import com.model.BookChange;
+import com.model.BookSyncResponse;
+
+class BookReplicaTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void keepsABookDeletedByTheFeedOutOfAnOlderSync() {
+        BookReplica replica = replica(100);
+        replica.apply(sync(10, true, book(1, 1), book(2, 1)));
+
+        replica.apply(deleted(1, 12));
+        // Read before the delete was committed
+        replica.apply(sync(11, false, book(1, 2)));
+
+        assertThat(ids(replica)).containsExactly(2L);
+    }
+
+    @Test
+    void forgetsAFeedDeleteOnceASyncHasPassedIt() {
+        BookReplica replica = replica(100);
+        replica.apply(sync(10, true, book(1, 1), book(2, 1)));
+        replica.apply(deleted(1, 12));
+
+        BookSyncResponse passed = sync(12, false);
+        passed.setDeleted(List.of(1L));
+        replica.apply(passed);
+        // Only a sync that no longer needs the delete may now return the book
+        replica.apply(sync(13, false, book(1, 3)));
+
+        assertThat(ids(replica)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void doesNotRecordADeleteTheReplicaHasAlreadySyncedPast() {
+        BookReplica replica = replica(100);
+        replica.apply(sync(20, true, book(1, 1), book(2, 1)));
+
+        replica.apply(deleted(1, 15));
+        replica.apply(sync(21, false, book(1, 2)));
+
+        assertThat(ids(replica)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void keepsTheNewerVersionOfABook() {
+        BookReplica replica = replica(100);
+        replica.apply(sync(10, true, book(1, 1)));
+
+        BookChange updated = new BookChange();
+        updated.setType(BookChange.UPDATED);
+        updated.setId(1L);
+        updated.setChangeVersion(12);
+        updated.setBook(book(1, 3));
+        replica.apply(updated);
+        replica.apply(sync(11, false, book(1, 2)));
+
+        assertThat(replica.page(0, 10).getContent().get(0).getVersion()).isEqualTo(3L);
+    }
+
+    @Test
+    void savesAndLoadsTheCatalog() throws Exception {
+        BookReplica replica = replica(100);
+        replica.apply(sync(10, true, book(2, 1), book(1, 1)));
+        replica.save();
+
+        BookReplica loaded = replica(100);
+
+        assertThat(loaded.load()).isTrue();
+        assertThat(loaded.getVersion()).isEqualTo(10);
+        assertThat(loaded.getEpoch()).isEqualTo("epoch");
+        assertThat(ids(loaded)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void keepsChangesTheFeedDeliveredBeforeTheFileWasLoaded() throws Exception {
+        BookReplica saved = replica(100);
+        saved.apply(sync(10, true, book(1, 1), book(2, 1), book(3, 1)));
+        saved.save();
+        BookReplica replica = replica(100);
+
+        BookChange updated = new BookChange();
+        updated.setType(BookChange.UPDATED);
+        updated.setId(1L);
+        updated.setChangeVersion(11);
+        updated.setBook(book(1, 2));
+        replica.apply(updated);
+        replica.apply(deleted(2, 12));
+        replica.load();
+
+        assertThat(ids(replica)).containsExactly(1L, 3L);
+        assertThat(replica.page(0, 10).getContent().get(0).getVersion()).isEqualTo(2L);
+        // The file predates the delete, so a sync from its version must not bring the book back
+        replica.apply(sync(11, false, book(2, 1)));
+        assertThat(ids(replica)).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void givesUpOnACatalogLargerThanMaxBooks() throws Exception {
+        BookReplica small = replica(100);
+        small.apply(sync(10, true, book(1, 1)));
+        small.save();
+
+        BookReplica replica = replica(2);
+        replica.load();
+        replica.apply(sync(11, false, book(2, 1), book(3, 1)));
+        replica.save();
+
+        assertThat(replica.isTooLarge()).isTrue();
+        assertThat(replica.isComplete()).isFalse();
+        assertThat(replica.page(0, 10).getContent()).isEmpty();
+        assertThat(Files.exists(dir.resolve("books.smile"))).isFalse();
+    }
+
+    @Test
+    void startsOverForAnotherEpoch() {
+        BookReplica replica = replica(100);
+        replica.apply(sync(10, true, book(1, 1), book(2, 1)));
+        replica.apply(deleted(1, 12));
+
+        BookSyncResponse other = sync(3, true, book(1, 1));
+        other.setEpoch("other");
+        replica.apply(other);
+
+        assertThat(ids(replica)).containsExactly(1L);
+    }
+
+    private BookReplica replica(int maxBooks) {
+        return new BookReplica(dir.resolve("books.smile"), BookJson.smile(), maxBooks);
+    }
+
+    private static List<Long> ids(BookReplica replica) {
+        List<Long> ids = new ArrayList<>();
+        for (Book book : replica.page(0, 100).getContent()) {
+            ids.add(book.getId());
+        }
+        return ids;
+    }
+
+    private static BookSyncResponse sync(long version, boolean reset, Book... books) {
+        BookSyncResponse sync = new BookSyncResponse();
+        sync.setEpoch("epoch");
+        sync.setVersion(version);
+        sync.setReset(reset);
+        sync.setBooks(new ArrayList<>(Arrays.asList(books)));
+        return sync;
+    }
+
+    private static BookChange deleted(long id, long changeVersion) {
+        BookChange change = new BookChange();
+        change.setType(BookChange.DELETED);
+        change.setId(id);
+        change.setChangeVersion(changeVersion);
+        return change;
+    }
+
+    private static Book book(long id, long version) {
+        Book book = new Book("Title " + id, "Author", null);
+        book.setId(id);
+        book.setVersion(version);
+        return book;
+    }
+}
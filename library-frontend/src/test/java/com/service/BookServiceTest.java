@@ -0,0 +1,248 @@
+package com.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.model.Book;
+import com.model.BookSuggestion;
+import com.model.PageResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class BookServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<HttpExchange> requests = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private HttpServer server;
+    private volatile Handler handler = exchange -> respond(exchange, 200, page("Dune"));
+    private BookService service;
+
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/api/books", exchange -> {
+            requests.add(exchange);
+            try {
+                handler.handle(exchange);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+        service = new BookService(dir.resolve("books.smile"),
+                "http://localhost:" + server.getAddress().getPort() + "/api/books");
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void sharesOneRequestBetweenCallersOfTheSamePage() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        handler = exchange -> {
+            await(release);
+            respond(exchange, 200, page("Dune"));
+        };
+
+        CompletableFuture<PageResponse<Book>> first = service.getAllBooksPaginated(0, 10);
+        CompletableFuture<PageResponse<Book>> second = service.getAllBooksPaginated(0, 10);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getContent().get(0).getTitle()).isEqualTo("Dune");
+        assertThat(second.get(5, TimeUnit.SECONDS).getContent().get(0).getTitle()).isEqualTo("Dune");
+        assertThat(requests).hasSize(1);
+    }
+
+    @Test
+    void cancellingOneCallerLeavesTheSharedRequestRunning() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        handler = exchange -> {
+            await(release);
+            respond(exchange, 200, page("Dune"));
+        };
+
+        CompletableFuture<PageResponse<Book>> first = service.searchBooks("dune", 0, 10);
+        CompletableFuture<PageResponse<Book>> second = service.searchBooks("dune", 0, 10);
+        second.cancel(true);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getContent()).hasSize(1);
+        assertThat(second).isCancelled();
+    }
+
+    @Test
+    void failsTheFutureOnAnErrorStatus() {
+        handler = exchange -> respond(exchange, 500, "{}");
+
+        assertThatThrownBy(() -> service.getAllBooksPaginated(0, 10).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasRootCauseMessage("Failed to fetch books");
+    }
+
+    @Test
+    void servesAPrefetchedPageFromTheCache() throws Exception {
+        service.prefetch(null, 1, 10);
+        waitForRequests(1);
+
+        assertThat(service.getAllBooksPaginated(1, 10).get(5, TimeUnit.SECONDS).getContent()).hasSize(1);
+        assertThat(requests).hasSize(1);
+    }
+
+    @Test
+    void revalidatesARefreshedPageWithItsETag() throws Exception {
+        handler = exchange -> {
+            if ("W/\"1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("ETag", "W/\"1\"");
+            respond(exchange, 200, page("Dune"));
+        };
+        PageResponse<Book> fetched = service.getAllBooksPaginated(0, 10).get(5, TimeUnit.SECONDS);
+
+        service.refresh();
+
+        assertThat(service.getAllBooksPaginated(0, 10).get(5, TimeUnit.SECONDS)).isSameAs(fetched);
+        assertThat(requests).hasSize(2);
+        // Fresh again after the 304
+        assertThat(service.getAllBooksPaginated(0, 10).get(5, TimeUnit.SECONDS)).isSameAs(fetched);
+        assertThat(requests).hasSize(2);
+    }
+
+    @Test
+    void narrowsACompleteSearchLocallyWhileTyping() throws Exception {
+        handler = exchange -> respond(exchange, 200, page("Harry Potter", "Harriet the Spy"));
+        service.searchBooks("harr", 0, 10).get(5, TimeUnit.SECONDS);
+
+        PageResponse<Book> narrowed = service.searchBooks("harry", 0, 10).get(5, TimeUnit.SECONDS);
+
+        assertThat(narrowed.getContent()).extracting(Book::getTitle).containsExactly("Harry Potter");
+        assertThat(narrowed.getTotalElements()).isEqualTo(1);
+        assertThat(requests).hasSize(1);
+    }
+
+    @Test
+    void asksForSmileAndDecodesAGzippedSmileResponse() throws Exception {
+        handler = exchange -> {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (OutputStream gzip = new GZIPOutputStream(body)) {
+                gzip.write(new SmileMapper().writeValueAsBytes(new ObjectMapper().readTree(page("Dune"))));
+            }
+            exchange.getResponseHeaders().set("Content-Type", BookJson.SMILE_CONTENT_TYPE);
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, body.size());
+            try (OutputStream out = exchange.getResponseBody()) {
+                body.writeTo(out);
+            }
+        };
+
+        PageResponse<Book> page = service.getAllBooksPaginated(0, 10).get(5, TimeUnit.SECONDS);
+
+        assertThat(page.getContent()).extracting(Book::getTitle).containsExactly("Dune");
+        assertThat(requests.get(0).getRequestHeaders().getFirst("Accept")).startsWith(BookJson.SMILE_CONTENT_TYPE);
+    }
+
+    @Test
+    void readsSuggestions() throws Exception {
+        handler = exchange -> respond(exchange, 200, "[{\"id\":4,\"title\":\"Dune\"}]");
+
+        List<BookSuggestion> suggestions = service.suggestBooks("du ne", 5).get(5, TimeUnit.SECONDS);
+
+        assertThat(suggestions).extracting(BookSuggestion::getTitle).containsExactly("Dune");
+        assertThat(requests.get(0).getRequestURI().getRawQuery()).isEqualTo("query=du+ne&limit=5");
+    }
+
+    @Test
+    void syncsTheReplicaUntilTheServerHasNoMoreAndListsFromIt() throws Exception {
+        handler = exchange -> {
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query.startsWith("since=0&")) {
+                respond(exchange, 200, "{\"epoch\":\"e\",\"version\":5,\"reset\":true,\"hasMore\":true,"
+                        + "\"books\":[{\"id\":1,\"title\":\"One\"},{\"id\":2,\"title\":\"Two\"}]}");
+            } else {
+                respond(exchange, 200, "{\"epoch\":\"e\",\"version\":8,\"hasMore\":false,"
+                        + "\"books\":[{\"id\":3,\"title\":\"Three\"}],\"deleted\":[1]}");
+            }
+        };
+
+        service.sync().get(5, TimeUnit.SECONDS);
+
+        assertThat(requests).extracting(exchange -> exchange.getRequestURI().getRawQuery())
+                .containsExactly("since=0&limit=5000", "since=5&limit=5000&epoch=e");
+        PageResponse<Book> page = service.getAllBooksPaginated(0, 10).get(5, TimeUnit.SECONDS);
+        assertThat(page.getContent()).extracting(Book::getId).containsExactly(2L, 3L);
+        assertThat(requests).hasSize(2);
+        assertThat(dir.resolve("books.smile")).exists();
+    }
+
+    private void waitForRequests(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (requests.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    static String page(String... titles) {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < titles.length; i++) {
+            if (i > 0) {
+                content.append(',');
+            }
+            content.append("{\"id\":").append(i + 1).append(",\"title\":\"").append(titles[i])
+                    .append("\",\"author\":\"Author\",\"version\":1}");
+        }
+        return "{\"content\":[" + content + "],\"page\":0,\"size\":10,\"totalElements\":" + titles.length
+                + ",\"totalPages\":1}";
+    }
+}
@@ -0,0 +1,47 @@
+package com.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.model.Book;
+
+class LocalSearchTest {
+
+    @Test
+    void matchesEveryWordAsThePrefixOfAWord() {
+        Book dune = book("Dune Messiah", "Frank Herbert", "978-0-593-09823-5");
+
+        assertThat(LocalSearch.matches(dune, "mess HERB")).isTrue();
+        assertThat(LocalSearch.matches(dune, "essiah")).isFalse();
+        assertThat(LocalSearch.matches(dune, "dune venus")).isFalse();
+        assertThat(LocalSearch.matches(dune, "9780593")).isTrue();
+        assertThat(LocalSearch.matches(dune, "09823")).isTrue();
+    }
+
+    @Test
+    void filtersInTheGivenOrder() {
+        Book emma = book("Emma", "Jane Austen", null);
+        Book dune = book("Dune", "Frank Herbert", null);
+        Book persuasion = book("Persuasion", "Jane Austen", null);
+
+        assertThat(LocalSearch.filter(List.of(emma, dune, persuasion), "austen")).containsExactly(emma, persuasion);
+    }
+
+    @Test
+    void refinesOnlyQueriesThatAddCharactersAtTheEnd() {
+        assertThat(LocalSearch.refines("Harry", "harr")).isTrue();
+        assertThat(LocalSearch.refines("harr", "harry")).isFalse();
+        assertThat(LocalSearch.refines("potter harry", "harry")).isFalse();
+    }
+
+    private static Book book(String title, String author, String isbn) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setIsbn(isbn);
+        return book;
+    }
+}
@@ -0,0 +1,146 @@
+package com.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.model.Book;
+import com.model.BookChange;
+import com.model.PageResponse;
+
+class PageCacheTest {
+
+    private final PageCache cache = new PageCache(2, Long.MAX_VALUE, TimeUnit.MINUTES.toNanos(1));
+
+    @Test
+    void evictsTheLeastRecentlyUsedPage() {
+        PageCache.Key first = new PageCache.Key(null, 0, 10);
+        PageCache.Key second = new PageCache.Key(null, 1, 10);
+        PageCache.Key third = new PageCache.Key(null, 2, 10);
+        put(first, page(book(1, "Dune")));
+        put(second, page(book(2, "Emma")));
+
+        cache.get(first);
+        put(third, page(book(3, "Ulysses")));
+
+        assertThat(cache.get(first)).isNotNull();
+        assertThat(cache.get(second)).isNull();
+        assertThat(cache.get(third)).isNotNull();
+    }
+
+    @Test
+    void evictsPagesBeyondTheMemoryCap() {
+        PageCache small = new PageCache(10, 300, TimeUnit.MINUTES.toNanos(1));
+        PageCache.Key first = new PageCache.Key(null, 0, 10);
+        PageCache.Key second = new PageCache.Key(null, 1, 10);
+        small.put(first, page(book(1, "Dune")), null, small.generation());
+        small.put(second, page(book(2, "Emma")), null, small.generation());
+
+        assertThat(small.get(first)).isNull();
+        assertThat(small.get(second)).isNotNull();
+    }
+
+    @Test
+    void keepsInvalidatedPagesOnlyForRevalidation() {
+        PageCache.Key key = new PageCache.Key("dune", 0, 10);
+        cache.put(key, page(book(1, "Dune")), "W/\"1\"", cache.generation());
+
+        cache.invalidateAll();
+
+        assertThat(cache.get(key)).isNull();
+        PageCache.Entry stale = cache.getForRevalidation(key);
+        assertThat(stale.getEtag()).isEqualTo("W/\"1\"");
+
+        cache.revalidated(key, stale, cache.generation());
+        assertThat(cache.get(key)).isSameAs(stale.getPage());
+    }
+
+    @Test
+    void discardsAResponseRequestedBeforeAnInvalidation() {
+        PageCache.Key key = new PageCache.Key(null, 0, 10);
+        long generation = cache.generation();
+
+        cache.invalidateAll();
+        cache.put(key, page(book(1, "Dune")), null, generation);
+
+        assertThat(cache.getForRevalidation(key)).isNull();
+    }
+
+    @Test
+    void appliesAnUpdateToEveryPageHoldingTheBook() {
+        PageCache.Key listing = new PageCache.Key(null, 0, 10);
+        PageCache.Key search = new PageCache.Key("dune", 0, 10);
+        PageResponse<Book> cached = page(book(1, "Dune"), book(2, "Emma"));
+        put(listing, cached);
+        put(search, page(book(1, "Dune")));
+
+        cache.apply(updated(book(1, "Dune Messiah")));
+
+        assertThat(cache.get(listing).getContent()).extracting(Book::getTitle).containsExactly("Dune Messiah", "Emma");
+        assertThat(cache.get(search).getContent()).extracting(Book::getTitle).containsExactly("Dune Messiah");
+        // The page that was handed out is left as it was
+        assertThat(cached.getContent().get(0).getTitle()).isEqualTo("Dune");
+
+        cache.apply(updated(book(1, "Messiah")));
+        assertThat(cache.getForRevalidation(search)).isNull();
+    }
+
+    @Test
+    void makesEveryPageStaleOnAnAddOrDelete() {
+        PageCache.Key key = new PageCache.Key(null, 0, 10);
+        put(key, page(book(1, "Dune")));
+
+        BookChange deleted = new BookChange();
+        deleted.setType(BookChange.DELETED);
+        deleted.setId(7L);
+        cache.apply(deleted);
+
+        assertThat(cache.get(key)).isNull();
+    }
+
+    @Test
+    void findsACompleteSearchTheQueryRefines() {
+        put(new PageCache.Key("dun", 0, 10), page(book(1, "Dune"), book(2, "Dunkirk")));
+        PageResponse<Book> partial = page(book(3, "Emma"));
+        partial.setTotalElements(25);
+        put(new PageCache.Key("em", 0, 10), partial);
+
+        assertThat(cache.findCompleteBroaderSearch("dune", 10)).isNotNull();
+        assertThat(cache.findCompleteBroaderSearch("dune", 20)).isNull();
+        assertThat(cache.findCompleteBroaderSearch("emma", 10)).isNull();
+    }
+
+    private void put(PageCache.Key key, PageResponse<Book> page) {
+        cache.put(key, page, null, cache.generation());
+    }
+
+    private static BookChange updated(Book book) {
+        BookChange change = new BookChange();
+        change.setType(BookChange.UPDATED);
+        change.setId(book.getId());
+        change.setBook(book);
+        return change;
+    }
+
+    static PageResponse<Book> page(Book... books) {
+        PageResponse<Book> page = new PageResponse<>();
+        page.setContent(new ArrayList<>(Arrays.asList(books)));
+        page.setSize(10);
+        page.setTotalElements(books.length);
+        page.setTotalPages(1);
+        return page;
+    }
+
+    static Book book(long id, String title) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor("Author");
+        book.setVersion(1L);
+        return book;
+    }
+}
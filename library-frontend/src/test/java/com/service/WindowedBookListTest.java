@@ -0,0 +1,185 @@
+package com.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.model.Book;
+import com.model.BookChange;
+import com.sun.net.httpserver.HttpServer;
+
+class WindowedBookListTest {
+
+    @TempDir
+    Path dir;
+
+    // Stands in for the JavaFX Application Thread: the test runs what is handed over to it
+    private final BlockingQueue<Runnable> fxThread = new LinkedBlockingQueue<>();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private HttpServer server;
+    private BookService service;
+    private volatile int total = 100;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/api/books", exchange -> {
+            String query = exchange.getRequestURI().getRawQuery();
+            requests.add(query);
+            try {
+                BookServiceTest.respond(exchange, 200, rows(parameter(query, "page"), parameter(query, "size")));
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+        service = new BookService(dir.resolve("books.smile"),
+                "http://localhost:" + server.getAddress().getPort() + "/api/books");
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void loadsTheBlocksOfTheRowsDisplayed() throws Exception {
+        WindowedBookList list = list(3);
+
+        assertThat(list.size()).isEqualTo(100);
+        assertThat(list.totalElementsProperty().get()).isEqualTo(100);
+        assertThat(list.get(0).getId()).isEqualTo(1L);
+
+        assertThat(list.get(55)).isNull();
+        runLoads(1);
+        assertThat(list.get(55).getId()).isEqualTo(56L);
+        assertThat(requests).containsExactly("page=0&size=10", "page=5&size=10");
+    }
+
+    @Test
+    void fetchesTheNextBlockAheadOfTheLastRowsOfABlock() throws Exception {
+        WindowedBookList list = list(3);
+
+        list.get(8);
+        runLoads(1);
+
+        assertThat(list.get(15).getId()).isEqualTo(16L);
+        assertThat(fxThread).isEmpty();
+    }
+
+    @Test
+    void dropsTheLeastRecentlyUsedBlocks() throws Exception {
+        WindowedBookList list = list(2);
+        list.get(15);
+        runLoads(1);
+        list.get(25);
+        runLoads(1);
+
+        assertThat(list.get(25)).isNotNull();
+        assertThat(list.get(15)).isNotNull();
+        assertThat(list.get(5)).isNull();
+    }
+
+    @Test
+    void appliesPushedChangesToTheLoadedRows() throws Exception {
+        total = 25;
+        WindowedBookList list = list(3);
+        list.get(15);
+        runLoads(1);
+
+        list.apply(change(BookChange.UPDATED, book(3, "Renamed")));
+        assertThat(list.get(2).getTitle()).isEqualTo("Renamed");
+
+        list.apply(change(BookChange.DELETED, book(1, null)));
+        assertThat(list.size()).isEqualTo(24);
+        assertThat(list.get(0).getId()).isEqualTo(2L);
+        // The first row of the next block moved up into this one
+        assertThat(list.get(9).getId()).isEqualTo(11L);
+
+        list.apply(change(BookChange.ADDED, book(26, "New")));
+        assertThat(list.size()).isEqualTo(25);
+        assertThat(list.totalElementsProperty().get()).isEqualTo(25);
+    }
+
+    @Test
+    void ignoresLoadsThatCompleteAfterItWasClosed() throws Exception {
+        WindowedBookList list = list(3);
+        // Would resize the list if it were taken in
+        total = 40;
+        list.get(35);
+
+        list.close();
+        runLoads(1);
+
+        assertThat(list.size()).isEqualTo(100);
+    }
+
+    private WindowedBookList list(int maxBlocks) throws InterruptedException {
+        WindowedBookList list = new WindowedBookList(service, null, 10, maxBlocks, fxThread::add);
+        runLoads(1);
+        return list;
+    }
+
+    private void runLoads(int count) throws InterruptedException {
+        for (int i = 0; i < count; i++) {
+            Runnable loaded = fxThread.poll(5, TimeUnit.SECONDS);
+            assertThat(loaded).isNotNull();
+            loaded.run();
+        }
+    }
+
+    private String rows(int page, int size) {
+        StringBuilder content = new StringBuilder();
+        for (int id = page * size + 1; id <= Math.min(total, (page + 1) * size); id++) {
+            if (content.length() > 0) {
+                content.append(',');
+            }
+            content.append("{\"id\":").append(id).append(",\"title\":\"Book ").append(id)
+                    .append("\",\"author\":\"Author\",\"version\":1}");
+        }
+        return "{\"content\":[" + content + "],\"page\":" + page + ",\"size\":" + size
+                + ",\"totalElements\":" + total + ",\"totalPages\":" + (total + size - 1) / size + "}";
+    }
+
+    private static int parameter(String query, String name) {
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith(name + "=")) {
+                return Integer.parseInt(parameter.substring(name.length() + 1));
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    private static BookChange change(String type, Book book) {
+        BookChange change = new BookChange();
+        change.setType(type);
+        change.setId(book.getId());
+        change.setBook(book);
+        return change;
+    }
+
+    private static Book book(long id, String title) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor("Author");
+        return book;
+    }
+}